@@ -24,5 +24,9 @@ public class MessageConstant {
     public static final String DISH_BE_RELATED_BY_SETMEAL = "当前菜品关联了套餐,不能删除";
     public static final String ORDER_STATUS_ERROR = "订单状态错误";
     public static final String ORDER_NOT_FOUND = "订单不存在";
+    public static final String PRODUCT_NOT_FOUND = "商品不存在";
+    public static final String REPORT_DATE_IS_NULL = "请选择开始日期和结束日期";
+    public static final String REPORT_DATE_REVERSED = "开始日期不能晚于结束日期";
+    public static final String REPORT_DATE_TOO_LONG = "日期区间不能超过366天";
 
 }
@@ -0,0 +1,16 @@
+package com.sky.constant;
+
+/**
+ * WebSocket相关常量
+ */
+public class WebSocketConstant {
+
+    //建立连接时指定订阅分组的请求参数，多个分组用逗号分隔，如：/ws/{sid}?groups=merchant,shop_1
+    public static final String GROUP_PARAM = "groups";
+
+    //商家管理端分组，接收来单提醒和客户催单
+    public static final String GROUP_MERCHANT = "merchant";
+
+    //未指定分组时默认加入的分组
+    public static final String DEFAULT_GROUP = GROUP_MERCHANT;
+}
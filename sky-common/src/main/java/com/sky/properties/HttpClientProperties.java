@@ -0,0 +1,18 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.http-client")
+@Data
+public class HttpClientProperties {
+
+    private int maxTotal;  //连接池最大连接数
+    private int maxPerRoute;  //每个目标主机的最大连接数
+    private long keepAlive;  //空闲连接保持时间（毫秒）
+    private int asyncThreads;  //异步请求线程数
+    private int asyncQueueCapacity;  //异步请求最大排队数，队列满时拒绝新的异步请求
+
+}
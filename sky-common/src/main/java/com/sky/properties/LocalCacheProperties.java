@@ -0,0 +1,15 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.local-cache")
+@Data
+public class LocalCacheProperties {
+
+    private long maximumSize;  //本地缓存最大条目数
+    private long expireSeconds;  //本地缓存写入后的过期时间（秒）
+
+}
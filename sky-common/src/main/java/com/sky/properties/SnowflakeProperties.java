@@ -0,0 +1,15 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.snowflake")
+@Data
+public class SnowflakeProperties {
+
+    private Long workerId;  //机器id（0~1023），不配置时通过redis租约自动领取
+    private long maxBorrowMillis;  //时钟回拨时允许领先系统时钟的最大毫秒数
+
+}
@@ -0,0 +1,18 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.storage")
+@Data
+public class StorageProperties {
+
+    private String type;  //存储方式：alioss（阿里云OSS）或local（本地文件系统）
+    private String localDir;  //本地存储的根目录
+    private String localUrlPrefix;  //本地存储文件的访问路径前缀
+    private int uploadThreads;  //上传线程数，即同时进行的最大上传数
+    private int uploadQueueCapacity;  //上传任务最大排队数
+
+}
@@ -0,0 +1,15 @@
+package com.sky.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConfigurationProperties(prefix = "sky.websocket")
+@Data
+public class WebSocketProperties {
+
+    private int maxPendingMessages;  //每个会话最多积压的待发送消息数，超出后关闭该会话
+    private long sendTimeout;  //单条消息的发送超时时间（毫秒）
+
+}
@@ -0,0 +1,37 @@
+package com.sky.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * 文件存储，不同的实现对应不同的存储方式（阿里云OSS、本地文件系统等）
+ */
+public interface FileStorage {
+
+    /**
+     * 文件上传，直接读取输入流写入存储，不在内存中缓冲整个文件
+     * @param inputStream 文件内容，由调用方负责关闭
+     * @param size 文件大小，未知时为-1
+     * @param objectName 文件名称，可以包含“/”分隔的目录
+     * @param contentType 文件类型，可以为null
+     * @return 文件访问路径
+     * @throws IOException
+     */
+    String upload(InputStream inputStream, long size, String objectName, String contentType) throws IOException;
+
+    /**
+     * 查询名称以指定前缀开头的文件
+     * @param prefix 名称前缀，不包含目录
+     * @return 文件名称
+     * @throws IOException
+     */
+    List<String> list(String prefix) throws IOException;
+
+    /**
+     * 获取文件访问路径
+     * @param objectName
+     * @return
+     */
+    String getUrl(String objectName);
+}
@@ -0,0 +1,76 @@
+package com.sky.storage;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 本地文件系统存储，用于开发和测试环境，不依赖云存储
+ */
+@Slf4j
+public class LocalFileStorage implements FileStorage {
+
+    //文件保存的根目录
+    private final Path baseDir;
+    //文件访问路径的前缀
+    private final String urlPrefix;
+
+    public LocalFileStorage(String baseDir, String urlPrefix) {
+        this.baseDir = Paths.get(baseDir).toAbsolutePath().normalize();
+        this.urlPrefix = urlPrefix.endsWith("/") ? urlPrefix.substring(0, urlPrefix.length() - 1) : urlPrefix;
+    }
+
+    @Override
+    public String upload(InputStream inputStream, long size, String objectName, String contentType) throws IOException {
+        Path target = resolve(objectName);
+        Files.createDirectories(target.getParent());
+
+        //先写入临时文件再重命名，读取方不会看到写了一半的文件
+        Path temp = Files.createTempFile(target.getParent(), ".upload", ".tmp");
+        try {
+            Files.copy(inputStream, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        String url = getUrl(objectName);
+        log.info("文件上传到:{}", url);
+        return url;
+    }
+
+    @Override
+    public List<String> list(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(baseDir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix))
+                    .collect(Collectors.toList());
+        } catch (NoSuchFileException e) {
+            //还没有上传过文件
+            return new ArrayList<>();
+        }
+    }
+
+    @Override
+    public String getUrl(String objectName) {
+        return urlPrefix + "/" + objectName;
+    }
+
+    private Path resolve(String objectName) throws IOException {
+        Path path = baseDir.resolve(objectName).normalize();
+        if (!path.startsWith(baseDir)) {
+            throw new IOException("非法的文件名称：" + objectName);
+        }
+        return path;
+    }
+}
@@ -1,23 +1,41 @@
 package com.sky.utils;
 
-import com.aliyun.oss.ClientException;
 import com.aliyun.oss.OSS;
 import com.aliyun.oss.OSSClientBuilder;
-import com.aliyun.oss.OSSException;
-import lombok.AllArgsConstructor;
-import lombok.Data;
+import com.aliyun.oss.model.ListObjectsRequest;
+import com.aliyun.oss.model.OSSObjectSummary;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.sky.storage.FileStorage;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.stream.Collectors;
 
-@Data
-@AllArgsConstructor
+/**
+ * 阿里云OSS文件存储，所有上传共用一个OSSClient实例（内部维护连接池，线程安全）
+ */
+@Getter
 @Slf4j
-public class AliOssUtil {
+public class AliOssUtil implements FileStorage {
+
+    private final String endpoint;
+    private final String accessKeyId;
+    private final String accessKeySecret;
+    private final String bucketName;
 
-    private String endpoint;
-    private String accessKeyId;
-    private String accessKeySecret;
-    private String bucketName;
+    private final OSS ossClient;
+
+    public AliOssUtil(String endpoint, String accessKeyId, String accessKeySecret, String bucketName) {
+        this.endpoint = endpoint;
+        this.accessKeyId = accessKeyId;
+        this.accessKeySecret = accessKeySecret;
+        this.bucketName = bucketName;
+        // 创建OSSClient实例。
+        this.ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
+    }
 
     /**
      * 文件上传
@@ -27,31 +45,47 @@ public class AliOssUtil {
      * @return
      */
     public String upload(byte[] bytes, String objectName) {
+        return upload(new ByteArrayInputStream(bytes), bytes.length, objectName, null);
+    }
 
-        // 创建OSSClient实例。
-        OSS ossClient = new OSSClientBuilder().build(endpoint, accessKeyId, accessKeySecret);
-
-        try {
-            // 创建PutObject请求。
-            ossClient.putObject(bucketName, objectName, new ByteArrayInputStream(bytes));
-        } catch (OSSException oe) {
-            System.out.println("Caught an OSSException, which means your request made it to OSS, "
-                    + "but was rejected with an error response for some reason.");
-            System.out.println("Error Message:" + oe.getErrorMessage());
-            System.out.println("Error Code:" + oe.getErrorCode());
-            System.out.println("Request ID:" + oe.getRequestId());
-            System.out.println("Host ID:" + oe.getHostId());
-        } catch (ClientException ce) {
-            System.out.println("Caught an ClientException, which means the client encountered "
-                    + "a serious internal problem while trying to communicate with OSS, "
-                    + "such as not being able to access the network.");
-            System.out.println("Error Message:" + ce.getMessage());
-        } finally {
-            if (ossClient != null) {
-                ossClient.shutdown();
-            }
+    /**
+     * 文件上传，上传失败时抛出OSSException或ClientException
+     *
+     * @param inputStream
+     * @param size
+     * @param objectName
+     * @param contentType
+     * @return
+     */
+    @Override
+    public String upload(InputStream inputStream, long size, String objectName, String contentType) {
+        //已知文件大小时直接设置，OSS客户端无需先把整个流读入内存计算长度
+        ObjectMetadata metadata = new ObjectMetadata();
+        if (size >= 0) {
+            metadata.setContentLength(size);
         }
+        if (contentType != null) {
+            metadata.setContentType(contentType);
+        }
+
+        // 创建PutObject请求。
+        ossClient.putObject(bucketName, objectName, inputStream, metadata);
+
+        String url = getUrl(objectName);
+        log.info("文件上传到:{}", url);
+        return url;
+    }
+
+    @Override
+    public List<String> list(String prefix) {
+        ListObjectsRequest request = new ListObjectsRequest(bucketName).withPrefix(prefix);
+        return ossClient.listObjects(request).getObjectSummaries().stream()
+                .map(OSSObjectSummary::getKey)
+                .collect(Collectors.toList());
+    }
 
+    @Override
+    public String getUrl(String objectName) {
         //文件访问路径规则 https://BucketName.Endpoint/ObjectName
         StringBuilder stringBuilder = new StringBuilder("https://");
         stringBuilder
@@ -60,9 +94,13 @@ public class AliOssUtil {
                 .append(endpoint)
                 .append("/")
                 .append(objectName);
-
-        log.info("文件上传到:{}", stringBuilder.toString());
-
         return stringBuilder.toString();
     }
+
+    /**
+     * 关闭OSSClient，释放连接
+     */
+    public void shutdown() {
+        ossClient.shutdown();
+    }
 }
@@ -10,34 +10,122 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.util.EntityUtils;
 
 import java.io.IOException;
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Http工具类
+ * 所有请求共用一个带连接池的HttpClient，连接保持长连接并在请求之间复用，避免每次请求重新建立TCP和TLS连接
  */
 public class HttpClientUtil {
 
     static final  int TIMEOUT_MSEC = 5 * 1000;
 
+    //共用的HttpClient，未调用configure时使用默认配置
+    private static volatile CloseableHttpClient httpClient = createHttpClient(200, 20, 30 * 1000);
+
+    //执行异步请求的线程池
+    private static volatile ExecutorService asyncExecutor = createAsyncExecutor(8, 100);
+
     /**
-     * 发送GET方式请求
+     * 按配置重新创建共用的HttpClient和异步线程池，应用启动时调用
+     * @param maxTotal 连接池最大连接数
+     * @param maxPerRoute 每个目标主机的最大连接数
+     * @param keepAliveMsec 空闲连接保持时间（毫秒）
+     * @param asyncThreads 异步请求线程数
+     * @param asyncQueueCapacity 异步请求最大排队数，队列满时拒绝新的异步请求
+     */
+    public static synchronized void configure(int maxTotal, int maxPerRoute, long keepAliveMsec,
+                                              int asyncThreads, int asyncQueueCapacity) {
+        CloseableHttpClient oldHttpClient = httpClient;
+        ExecutorService oldAsyncExecutor = asyncExecutor;
+        httpClient = createHttpClient(maxTotal, maxPerRoute, keepAliveMsec);
+        asyncExecutor = createAsyncExecutor(asyncThreads, asyncQueueCapacity);
+        try {
+            oldHttpClient.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        oldAsyncExecutor.shutdown();
+    }
+
+    /**
+     * 异步发送GET方式请求
+     * 请求失败、响应状态不是200或线程池已满时，返回的future以异常结束
      * @param url
      * @param paramMap
      * @return
      */
+    public static CompletableFuture<String> doGetAsync(String url, Map<String, String> paramMap) {
+        return supplyAsync(() -> {
+            try {
+                return get(url, paramMap);
+            } catch (IOException | URISyntaxException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * 异步发送POST方式请求
+     * 请求失败或线程池已满时，返回的future以异常结束
+     * @param url
+     * @param paramMap
+     * @return
+     */
+    public static CompletableFuture<String> doPostAsync(String url, Map<String, String> paramMap) {
+        return supplyAsync(() -> {
+            try {
+                return doPost(url, paramMap);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    /**
+     * 发送GET方式请求
+     * @param url
+     * @param paramMap
+     * @return 请求失败或响应状态不是200时返回空字符串
+     */
     public static String doGet(String url,Map<String,String> paramMap){
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
+        try{
+            return get(url, paramMap);
+        }catch (Exception e){
+            e.printStackTrace();
+            return "";
+        }
+    }
 
-        String result = "";
+    /**
+     * 发送GET方式请求，失败时抛出异常
+     * @param url
+     * @param paramMap
+     * @return
+     * @throws IOException 请求失败或响应状态不是200
+     * @throws URISyntaxException
+     */
+    private static String get(String url, Map<String, String> paramMap) throws IOException, URISyntaxException {
         CloseableHttpResponse response = null;
 
         try{
@@ -51,26 +139,21 @@ public class HttpClientUtil {
 
             //创建GET请求
             HttpGet httpGet = new HttpGet(uri);
+            httpGet.setConfig(builderRequestConfig());
 
             //发送请求
             response = httpClient.execute(httpGet);
 
             //判断响应状态
-            if(response.getStatusLine().getStatusCode() == 200){
-                result = EntityUtils.toString(response.getEntity(),"UTF-8");
+            int statusCode = response.getStatusLine().getStatusCode();
+            if(statusCode != 200){
+                throw new IOException("请求" + url + "失败，响应状态：" + statusCode);
             }
-        }catch (Exception e){
-            e.printStackTrace();
+            return EntityUtils.toString(response.getEntity(),"UTF-8");
         }finally {
-            try {
-                response.close();
-                httpClient.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            //只关闭响应，连接归还连接池
+            close(response);
         }
-
-        return result;
     }
 
     /**
@@ -81,8 +164,6 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
         CloseableHttpResponse response = null;
         String resultString = "";
 
@@ -110,11 +191,8 @@ public class HttpClientUtil {
         } catch (Exception e) {
             throw e;
         } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            //只关闭响应，连接归还连接池
+            close(response);
         }
 
         return resultString;
@@ -128,8 +206,6 @@ public class HttpClientUtil {
      * @throws IOException
      */
     public static String doPost4Json(String url, Map<String, String> paramMap) throws IOException {
-        // 创建Httpclient对象
-        CloseableHttpClient httpClient = HttpClients.createDefault();
         CloseableHttpResponse response = null;
         String resultString = "";
 
@@ -160,15 +236,27 @@ public class HttpClientUtil {
         } catch (Exception e) {
             throw e;
         } finally {
-            try {
-                response.close();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+            //只关闭响应，连接归还连接池
+            close(response);
         }
 
         return resultString;
     }
+    /**
+     * 在异步线程池中执行请求，线程池已满时直接返回以异常结束的future，不占用调用线程执行
+     * @param supplier
+     * @return
+     */
+    private static CompletableFuture<String> supplyAsync(Supplier<String> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, asyncExecutor);
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
     private static RequestConfig builderRequestConfig() {
         return RequestConfig.custom()
                 .setConnectTimeout(TIMEOUT_MSEC)
@@ -176,4 +264,48 @@ public class HttpClientUtil {
                 .setSocketTimeout(TIMEOUT_MSEC).build();
     }
 
+    private static void close(CloseableHttpResponse response) {
+        if (response == null) {
+            return;
+        }
+        try {
+            response.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static CloseableHttpClient createHttpClient(int maxTotal, int maxPerRoute, long keepAliveMsec) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+        //空闲超过1秒的连接在复用前先检查是否已被服务端关闭
+        connectionManager.setValidateAfterInactivity(1000);
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(builderRequestConfig())
+                //服务端未指定keep-alive时间时，连接最多保持keepAliveMsec
+                .setKeepAliveStrategy((response, context) -> {
+                    long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return duration > 0 ? Math.min(duration, keepAliveMsec) : keepAliveMsec;
+                })
+                //后台线程定期关闭过期和空闲的连接
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveMsec, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    private static ExecutorService createAsyncExecutor(int threads, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "http-client-async-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
 }
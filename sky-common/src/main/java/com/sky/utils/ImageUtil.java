@@ -0,0 +1,208 @@
+package com.sky.utils;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 图片处理工具类，生成缩略图并按内容哈希命名
+ * 衍生图片名称为 {sha256}_{尺寸}.{格式}；原图名称中记录实际写入的衍生图片：{sha256}_{尺寸-尺寸}_{格式-格式}{后缀}，
+ * 没有衍生图片（不是图片、无法解码等）时原图名称为 {sha256}{后缀}
+ */
+public class ImageUtil {
+
+    //缩略图尺寸（像素），图片等比缩放到该尺寸的正方形以内
+    public static final int[] THUMBNAIL_SIZES = {200, 480};
+    public static final String FORMAT_JPEG = "jpg";
+    public static final String FORMAT_WEBP = "webp";
+    //有损压缩质量（JPEG、WebP）
+    private static final float COMPRESSION_QUALITY = 0.8f;
+
+    //JDK自带的ImageIO不支持写WebP，WebP由webp-imageio插件提供；插件缺失或其本地库无法加载时只生成JPEG图片
+    private static final boolean WEBP_SUPPORTED = ImageIO.getImageWritersByFormatName(FORMAT_WEBP).hasNext();
+
+    //衍生图片名称中哈希之后的部分：_{尺寸}.{格式}
+    private static final Pattern VARIANT_SUFFIX = Pattern.compile("^_[0-9]+\\.[a-z]+$");
+
+    //带有衍生图片的原图访问路径，分组依次为：访问路径前缀（含sha256）、尺寸列表、格式列表
+    private static final Pattern VARIANT_LISTED_URL =
+            Pattern.compile("^(.*/[0-9a-f]{64})_([0-9]+(?:-[0-9]+)*)_([a-z]+(?:-[a-z]+)*)\\.[A-Za-z0-9]+$");
+
+    /**
+     * 生成的衍生图片格式
+     * @return
+     */
+    public static String[] variantFormats() {
+        return WEBP_SUPPORTED ? new String[]{FORMAT_JPEG, FORMAT_WEBP} : new String[]{FORMAT_JPEG};
+    }
+
+    /**
+     * 衍生图片的文件名称
+     * @param hash 原图内容的sha256
+     * @param size 缩略图尺寸
+     * @param format 图片格式
+     * @return
+     */
+    public static String variantName(String hash, int size, String format) {
+        return hash + "_" + size + "." + format;
+    }
+
+    /**
+     * 原图的文件名称，名称中记录实际写入的衍生图片
+     * @param hash 原图内容的sha256
+     * @param sizes 已写入的缩略图尺寸
+     * @param formats 已写入的格式，每种格式都写入了所有尺寸；为空时表示没有衍生图片
+     * @param extension 原图后缀（.jpg  .png等）
+     * @return
+     */
+    public static String originalName(String hash, int[] sizes, Collection<String> formats, String extension) {
+        if (formats.isEmpty()) {
+            return hash + extension;
+        }
+        StringJoiner sizeList = new StringJoiner("-");
+        for (int size : sizes) {
+            sizeList.add(String.valueOf(size));
+        }
+        return hash + "_" + sizeList + "_" + String.join("-", formats) + extension;
+    }
+
+    /**
+     * 判断以内容哈希开头的文件名称是否为原图（而不是衍生图片）
+     * @param hash 原图内容的sha256
+     * @param name 文件名称
+     * @return
+     */
+    public static boolean isOriginalName(String hash, String name) {
+        return name.startsWith(hash) && !VARIANT_SUFFIX.matcher(name.substring(hash.length())).matches();
+    }
+
+    /**
+     * 根据原图访问路径得到衍生图片的访问路径，只返回原图名称中记录的、实际写入的衍生图片
+     * @param imageUrl 原图访问路径
+     * @return key为“尺寸.格式”，如 200.jpg；原图没有衍生图片时为空
+     */
+    public static Map<String, String> variantUrls(String imageUrl) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        if (imageUrl == null) {
+            return urls;
+        }
+        Matcher matcher = VARIANT_LISTED_URL.matcher(imageUrl);
+        if (!matcher.matches()) {
+            return urls;
+        }
+        String base = matcher.group(1);
+        for (String format : matcher.group(3).split("-")) {
+            for (String size : matcher.group(2).split("-")) {
+                urls.put(size + "." + format, base + "_" + size + "." + format);
+            }
+        }
+        return urls;
+    }
+
+    /**
+     * 读取图片，按缩略图的最大尺寸对大图隔行隔列采样解码，避免把整张大图解码到内存中
+     * @param inputStream
+     * @param maxSize 需要的最大尺寸
+     * @return 不是支持的图片格式时为null
+     * @throws IOException 图片损坏或ImageIO不支持其色彩空间（如CMYK的JPEG）时
+     */
+    public static BufferedImage read(InputStream inputStream, int maxSize) throws IOException {
+        try (ImageInputStream imageInputStream = ImageIO.createImageInputStream(inputStream)) {
+            if (imageInputStream == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(imageInputStream);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(imageInputStream, true, true);
+                //采样后的尺寸保持在目标尺寸的两倍以上，再缩放时仍有足够的清晰度
+                int shortSide = Math.min(reader.getWidth(0), reader.getHeight(0));
+                int subsampling = Math.max(1, shortSide / (maxSize * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * 等比缩放到size*size的正方形以内，不放大小图，透明背景填充为白色
+     * @param image
+     * @param size
+     * @return
+     */
+    public static BufferedImage resize(BufferedImage image, int size) {
+        double scale = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = result.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return result;
+    }
+
+    /**
+     * 把图片编码为指定格式
+     * @param image
+     * @param format jpg或webp
+     * @return
+     * @throws IOException
+     */
+    public static byte[] encode(BufferedImage image, String format) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("不支持的图片格式：" + format);
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (ImageOutputStream imageOutputStream = ImageIO.createImageOutputStream(outputStream)) {
+            writer.setOutput(imageOutputStream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            if (param.canWriteCompressed()) {
+                //WebP插件默认没有选定压缩方式，选用第一种（有损）
+                param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                if (param.getCompressionType() == null && param.getCompressionTypes() != null) {
+                    param.setCompressionType(param.getCompressionTypes()[0]);
+                }
+                param.setCompressionQuality(COMPRESSION_QUALITY);
+            }
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -4,7 +4,12 @@ import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtBuilder;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
 import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.time.Clock;
 import java.util.Date;
 import java.util.Map;
 
@@ -55,4 +60,42 @@ public class JwtUtil {
         return claims;
     }
 
+    /**
+     * Token解密，使用预先生成的秘钥对象，避免每次解密都重新构造秘钥
+     *
+     * @param secretKey 由{@link #secretKey(String)}生成的秘钥
+     * @param token     加密后的token
+     * @return
+     */
+    public static Claims parseJWT(Key secretKey, String token) {
+        return Jwts.parser()
+                .setSigningKey(secretKey)
+                .parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * Token解密，按指定时钟判断令牌是否过期
+     *
+     * @param secretKey 由{@link #secretKey(String)}生成的秘钥
+     * @param token     加密后的token
+     * @param clock     判断过期使用的时钟
+     * @return
+     */
+    public static Claims parseJWT(Key secretKey, String token, Clock clock) {
+        return Jwts.parser()
+                .setClock(() -> new Date(clock.millis()))
+                .setSigningKey(secretKey)
+                .parseClaimsJws(token).getBody();
+    }
+
+    /**
+     * 根据jwt秘钥字符串生成HS256算法使用的秘钥对象
+     *
+     * @param secretKey jwt秘钥
+     * @return
+     */
+    public static SecretKey secretKey(String secretKey) {
+        return new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), SignatureAlgorithm.HS256.getJcaName());
+    }
+
 }
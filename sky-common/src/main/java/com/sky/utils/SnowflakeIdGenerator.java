@@ -0,0 +1,103 @@
+package com.sky.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 雪花算法id生成器，生成趋势递增的64位id
+ * 结构：1位符号位（恒为0） + 41位时间戳（毫秒，相对于起始时间） + 10位机器id + 12位序列号
+ * 无锁实现：时间戳和序列号合并保存在一个AtomicLong中，通过CAS递增，
+ * 同一毫秒内序列号用完或时钟回拨时，借用后续的时间戳继续生成，保证id单调递增不重复；
+ * 借用超过上限（时钟大幅回拨）时直接抛出异常，不阻塞调用线程
+ */
+public class SnowflakeIdGenerator {
+
+    //起始时间：2024-01-01 00:00:00（UTC+8）
+    private static final long EPOCH = 1704038400000L;
+
+    private static final int WORKER_ID_BITS = 10;
+
+    private static final int SEQUENCE_BITS = 12;
+
+    //机器id的最大值：1023
+    public static final long MAX_WORKER_ID = (1L << WORKER_ID_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long workerId;
+
+    //允许借用的最大未来时间（毫秒），超过后拒绝生成
+    private final long maxBorrowMillis;
+
+    //上一次生成id使用的时间戳和序列号：时间戳 << 12 | 序列号
+    private final AtomicLong lastState = new AtomicLong();
+
+    //机器id的有效期（毫秒时间戳），机器id由租约分配时，租约过期后可能已被其他节点领取，不再生成id
+    private volatile long validUntil = Long.MAX_VALUE;
+
+    /**
+     * @param workerId 机器id，集群内唯一，范围0~1023
+     * @param maxBorrowMillis 时钟回拨或序列号用完时，允许领先系统时钟的最大毫秒数
+     */
+    public SnowflakeIdGenerator(long workerId, long maxBorrowMillis) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId必须在0~" + MAX_WORKER_ID + "之间：" + workerId);
+        }
+        this.workerId = workerId;
+        this.maxBorrowMillis = maxBorrowMillis;
+    }
+
+    /**
+     * 生成下一个id
+     * @return
+     * @throws IllegalStateException 时钟回拨超过允许借用的最大毫秒数，或机器id已过有效期
+     */
+    public long nextId() {
+        while (true) {
+            long last = lastState.get();
+            long lastTimestamp = last >>> SEQUENCE_BITS;
+            long currentTime = currentTimeMillis();
+            if (currentTime >= validUntil) {
+                throw new IllegalStateException("机器id：" + workerId + "的租约已过期");
+            }
+            long now = currentTime - EPOCH;
+
+            long next;
+            if (now > lastTimestamp) {
+                //进入新的毫秒，序列号从0开始
+                next = now << SEQUENCE_BITS;
+            } else if (lastTimestamp - now <= maxBorrowMillis) {
+                //同一毫秒或时钟回拨：序列号加1，序列号用完时进位到下一毫秒
+                next = last + 1;
+            } else {
+                //领先系统时钟过多（时钟大幅回拨或持续超过每毫秒4096个），等待时钟追上需要的时间不可控，直接失败
+                throw new IllegalStateException("时钟回拨" + (lastTimestamp - now) + "毫秒，超过允许的最大值" + maxBorrowMillis + "毫秒");
+            }
+
+            if (lastState.compareAndSet(last, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                long sequence = next & SEQUENCE_MASK;
+                return (timestamp << (WORKER_ID_BITS + SEQUENCE_BITS)) | (workerId << SEQUENCE_BITS) | sequence;
+            }
+        }
+    }
+
+    /**
+     * 设置机器id的有效期，每次租约续期成功后延长
+     * @param validUntil 毫秒时间戳
+     */
+    public void setValidUntil(long validUntil) {
+        this.validUntil = validUntil;
+    }
+
+    public long getWorkerId() {
+        return workerId;
+    }
+
+    /**
+     * 当前时间（毫秒），测试时可覆盖以模拟时钟回拨
+     * @return
+     */
+    protected long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,124 @@
+package com.sky.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 使用本地HTTP服务验证HttpClientUtil的连接复用和异步请求
+ */
+public class HttpClientUtilTest {
+
+    private HttpServer server;
+
+    private String baseUrl;
+
+    //服务端看到的客户端端口，端口相同说明复用了同一个TCP连接
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+
+    //slow接口的放行信号
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/echo", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            respond(exchange, 200, exchange.getRequestURI().getQuery());
+        });
+        server.createContext("/error", exchange -> respond(exchange, 500, "error"));
+        server.createContext("/slow", exchange -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            respond(exchange, 200, "slow");
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void stop() {
+        release.countDown();
+        server.stop(0);
+        HttpClientUtil.configure(200, 20, 30 * 1000, 8, 100);
+    }
+
+    /**
+     * 连续的同步请求复用同一个长连接
+     */
+    @Test
+    public void reusesPooledConnection() {
+        for (int i = 0; i < 20; i++) {
+            assertEquals("i=" + i, HttpClientUtil.doGet(baseUrl + "/echo", Collections.singletonMap("i", String.valueOf(i))));
+        }
+        assertEquals(1, clientPorts.size(), "20次请求应复用同一个连接");
+    }
+
+    @Test
+    public void asyncGetReturnsBody() throws Exception {
+        String body = HttpClientUtil.doGetAsync(baseUrl + "/echo", Collections.singletonMap("a", "1")).get(5, TimeUnit.SECONDS);
+        assertEquals("a=1", body);
+    }
+
+    /**
+     * 响应状态不是200时异步请求以异常结束，同步请求保持返回空字符串
+     */
+    @Test
+    public void asyncGetFailsOnErrorStatus() {
+        CompletableFuture<String> future = HttpClientUtil.doGetAsync(baseUrl + "/error", null);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof IOException);
+        assertEquals("", HttpClientUtil.doGet(baseUrl + "/error", null));
+    }
+
+    /**
+     * 异步线程池已满时立即拒绝，不在调用线程中执行请求
+     */
+    @Test
+    public void rejectsWhenAsyncPoolIsFull() throws Exception {
+        HttpClientUtil.configure(200, 20, 30 * 1000, 1, 1);
+        CompletableFuture<String> running = HttpClientUtil.doGetAsync(baseUrl + "/slow", null);
+        CompletableFuture<String> queued = HttpClientUtil.doGetAsync(baseUrl + "/slow", null);
+
+        long start = System.nanoTime();
+        CompletableFuture<String> rejected = HttpClientUtil.doGetAsync(baseUrl + "/slow", null);
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1), "线程池已满时不应阻塞调用线程");
+        ExecutionException e = assertThrows(ExecutionException.class, () -> rejected.get(1, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+
+        release.countDown();
+        assertEquals("slow", running.get(5, TimeUnit.SECONDS));
+        assertEquals("slow", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void respond(com.sun.net.httpserver.HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = (body == null ? "" : body).getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.sky.utils;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 验证原图名称中记录的衍生图片、原图与衍生图片的区分和图片解码
+ */
+public class ImageUtilTest {
+
+    private static final String HASH = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private static final String BASE_URL = "https://sky.oss-cn-beijing.aliyuncs.com/";
+
+    @Test
+    public void advertisesOnlyWrittenVariants() {
+        String name = ImageUtil.originalName(HASH, new int[]{200, 480}, Collections.singletonList("jpg"), ".png");
+        assertEquals(HASH + "_200-480_jpg.png", name);
+
+        Map<String, String> urls = ImageUtil.variantUrls(BASE_URL + name);
+        assertEquals(2, urls.size());
+        assertEquals(BASE_URL + HASH + "_200.jpg", urls.get("200.jpg"));
+        assertEquals(BASE_URL + HASH + "_480.jpg", urls.get("480.jpg"));
+    }
+
+    @Test
+    public void advertisesEveryWrittenFormat() {
+        String name = ImageUtil.originalName(HASH, new int[]{200}, Arrays.asList("jpg", "webp"), ".jpg");
+
+        Map<String, String> urls = ImageUtil.variantUrls(BASE_URL + name);
+        assertEquals(2, urls.size());
+        assertEquals(BASE_URL + HASH + "_200.webp", urls.get("200.webp"));
+    }
+
+    @Test
+    public void noVariantsWithoutList() {
+        String name = ImageUtil.originalName(HASH, ImageUtil.THUMBNAIL_SIZES, Collections.emptyList(), ".jpg");
+        assertEquals(HASH + ".jpg", name);
+
+        assertTrue(ImageUtil.variantUrls(BASE_URL + name).isEmpty());
+        assertTrue(ImageUtil.variantUrls(BASE_URL + "1.jpg").isEmpty());
+        assertTrue(ImageUtil.variantUrls(null).isEmpty());
+    }
+
+    @Test
+    public void distinguishesOriginalsFromVariants() {
+        assertTrue(ImageUtil.isOriginalName(HASH, HASH + "_200-480_jpg-webp.png"));
+        assertTrue(ImageUtil.isOriginalName(HASH, HASH + ".jpg"));
+        assertTrue(ImageUtil.isOriginalName(HASH, HASH));
+
+        assertFalse(ImageUtil.isOriginalName(HASH, ImageUtil.variantName(HASH, 200, "jpg")));
+        assertFalse(ImageUtil.isOriginalName(HASH, ImageUtil.variantName(HASH, 480, "webp")));
+        assertFalse(ImageUtil.isOriginalName(HASH, "other.jpg"));
+    }
+
+    @Test
+    public void readReturnsNullForNonImage() throws IOException {
+        assertNull(ImageUtil.read(new ByteArrayInputStream("not an image".getBytes()), 480));
+    }
+
+    @Test
+    public void readFailsOnBrokenImage() throws IOException {
+        //只有文件头的JPEG能找到解码器但无法解码，调用方需要捕获异常后只保存原图（CMYK的JPEG同样如此）
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB), "jpg", outputStream);
+        byte[] header = Arrays.copyOf(outputStream.toByteArray(), 30);
+
+        assertThrows(IOException.class, () -> ImageUtil.read(new ByteArrayInputStream(header), 480));
+    }
+
+    @Test
+    public void resizeFitsWithinSize() {
+        BufferedImage thumbnail = ImageUtil.resize(new BufferedImage(1000, 500, BufferedImage.TYPE_INT_RGB), 200);
+        assertEquals(200, thumbnail.getWidth());
+        assertEquals(100, thumbnail.getHeight());
+    }
+}
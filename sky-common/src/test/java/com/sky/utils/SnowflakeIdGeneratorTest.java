@@ -0,0 +1,123 @@
+package com.sky.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SnowflakeIdGeneratorTest {
+
+    private static final int THREADS = 8;
+
+    private static final int IDS_PER_THREAD = 200_000;
+
+    /**
+     * 多线程并发生成的id全部不重复，且每个线程内单调递增
+     */
+    @Test
+    public void concurrentIdsAreUnique() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, 5000);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[THREADS];
+            long[][] ids = new long[THREADS][IDS_PER_THREAD];
+            for (int t = 0; t < THREADS; t++) {
+                long[] threadIds = ids[t];
+                futures[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        threadIds[i] = generator.nextId();
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+
+            long[] all = new long[THREADS * IDS_PER_THREAD];
+            for (int t = 0; t < THREADS; t++) {
+                for (int i = 1; i < IDS_PER_THREAD; i++) {
+                    assertTrue(ids[t][i] > ids[t][i - 1], "同一线程内id应单调递增");
+                }
+                System.arraycopy(ids[t], 0, all, t * IDS_PER_THREAD, IDS_PER_THREAD);
+            }
+            Arrays.sort(all);
+            for (int i = 1; i < all.length; i++) {
+                assertTrue(all[i] != all[i - 1], "id重复：" + all[i]);
+            }
+            //机器id位于第12~21位
+            assertEquals(7, (all[0] >>> 12) & SnowflakeIdGenerator.MAX_WORKER_ID);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 时钟小幅回拨时借用时间戳继续生成递增的id，超过允许的最大值时立即失败而不是等待
+     */
+    @Test
+    public void clockRollback() {
+        MockClockGenerator generator = new MockClockGenerator(100);
+        generator.now = 1800000000000L;
+        long first = generator.nextId();
+
+        generator.now -= 50;
+        long second = generator.nextId();
+        assertTrue(second > first, "回拨在允许范围内时id仍应递增");
+
+        generator.now -= 1000;
+        assertThrows(IllegalStateException.class, generator::nextId);
+
+        //时钟追上后恢复生成
+        generator.now += 2000;
+        assertTrue(generator.nextId() > second);
+    }
+
+    /**
+     * 机器id租约过期后拒绝生成，续期后恢复
+     */
+    @Test
+    public void expiredWorkerIdLease() {
+        MockClockGenerator generator = new MockClockGenerator(100);
+        generator.now = 1800000000000L;
+        generator.setValidUntil(generator.now + 30000);
+        generator.nextId();
+
+        generator.now += 30000;
+        assertThrows(IllegalStateException.class, generator::nextId);
+
+        generator.setValidUntil(generator.now + 30000);
+        generator.nextId();
+    }
+
+    @Test
+    public void rejectsInvalidWorkerId() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1, 0));
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_WORKER_ID + 1, 0));
+    }
+
+    private static class MockClockGenerator extends SnowflakeIdGenerator {
+
+        private volatile long now;
+
+        MockClockGenerator(long maxBorrowMillis) {
+            super(1, maxBorrowMillis);
+        }
+
+        @Override
+        protected long currentTimeMillis() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.sky.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class OrderStatusCountDTO implements Serializable {
+    //日期（仅按天分组统计时有值）
+    private LocalDate date;
+
+    //订单状态
+    private Integer status;
+
+    //订单数量
+    private Integer orderCount;
+}
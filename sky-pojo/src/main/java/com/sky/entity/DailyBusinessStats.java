@@ -0,0 +1,41 @@
+package com.sky.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 每日运营数据汇总
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyBusinessStats implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    //统计日期（订单按下单日期、用户按注册日期归档）
+    private LocalDate date;
+
+    //营业额（状态为已完成的订单金额合计）
+    private BigDecimal turnover;
+
+    //订单总数
+    private Integer totalOrders;
+
+    //有效订单数（状态为已完成的订单数）
+    private Integer validOrders;
+
+    //新增用户数
+    private Integer newUsers;
+
+    //更新时间
+    private LocalDateTime updateTime;
+}
@@ -10,6 +10,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -26,6 +27,8 @@ public class DishVO implements Serializable {
     private BigDecimal price;
     //图片
     private String image;
+    //缩略图访问路径，key为“尺寸.格式”（如 200.jpg），只包含实际生成的缩略图，没有缩略图时为空
+    private Map<String, String> imageVariants;
     //描述信息
     private String description;
     //0 停售 1 起售
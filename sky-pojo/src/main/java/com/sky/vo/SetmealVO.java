@@ -10,6 +10,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -37,6 +38,9 @@ public class SetmealVO implements Serializable {
     //图片
     private String image;
 
+    //缩略图访问路径，key为“尺寸.格式”（如 200.jpg），只包含实际生成的缩略图，没有缩略图时为空
+    private Map<String, String> imageVariants;
+
     //更新时间
     private LocalDateTime updateTime;
 
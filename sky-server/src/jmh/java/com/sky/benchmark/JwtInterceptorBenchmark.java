@@ -0,0 +1,124 @@
+package com.sky.benchmark;
+
+import com.sky.constant.JwtClaimsConstant;
+import com.sky.context.BaseContext;
+import com.sky.controller.admin.EmployeeController;
+import com.sky.interceptor.JwtTokenAdminInterceptor;
+import com.sky.properties.JwtProperties;
+import com.sky.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.method.HandlerMethod;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 管理端jwt拦截器每次请求的preHandle耗时：
+ * legacyPreHandle 原来的实现，每次请求都用字符串秘钥解析令牌
+ * coldPreHandle   现在的实现未命中缓存（令牌不带过期时间，不会被缓存），每次都校验签名
+ * cachedPreHandle 现在的实现命中缓存
+ * 原来的实现还会在info级别输出令牌原文，输出会淹没测试结果，这里不计入，实际的改进比结果显示的更大
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtInterceptorBenchmark {
+
+    //与application.yml中的配置相同
+    private static final String SECRET = "itcast";
+
+    private static final String TOKEN_NAME = "token";
+
+    private final JwtTokenAdminInterceptor interceptor = new JwtTokenAdminInterceptor();
+
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    private HandlerMethod handler;
+
+    private MockHttpServletRequest request;
+
+    private MockHttpServletRequest uncachedRequest;
+
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchMethodException {
+        //与线上默认日志级别相同，拦截器中的debug日志不输出
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.INFO);
+
+        JwtProperties jwtProperties = new JwtProperties();
+        jwtProperties.setAdminSecretKey(SECRET);
+        jwtProperties.setAdminTtl(7200000);
+        jwtProperties.setAdminTokenName(TOKEN_NAME);
+        ReflectionTestUtils.setField(interceptor, "jwtProperties", jwtProperties);
+        interceptor.init();
+
+        handler = new HandlerMethod(new EmployeeController(), EmployeeController.class.getMethod("logout"));
+
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(JwtClaimsConstant.EMP_ID, 1L);
+        request = new MockHttpServletRequest();
+        request.addHeader(TOKEN_NAME, JwtUtil.createJWT(SECRET, jwtProperties.getAdminTtl(), claims));
+
+        String uncachedToken = Jwts.builder()
+                .setClaims(claims)
+                .signWith(SignatureAlgorithm.HS256, SECRET.getBytes(StandardCharsets.UTF_8))
+                .compact();
+        uncachedRequest = new MockHttpServletRequest();
+        uncachedRequest.addHeader(TOKEN_NAME, uncachedToken);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BaseContext.removeCurrentId();
+    }
+
+    @Benchmark
+    public boolean legacyPreHandle() {
+        if (!(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        String token = request.getHeader(TOKEN_NAME);
+        try {
+            Claims claims = JwtUtil.parseJWT(SECRET, token);
+            Long empId = Long.valueOf(claims.get(JwtClaimsConstant.EMP_ID).toString());
+            BaseContext.setCurrentId(empId);
+            return true;
+        } catch (Exception ex) {
+            response.setStatus(401);
+            return false;
+        }
+    }
+
+    @Benchmark
+    public boolean coldPreHandle() throws Exception {
+        return interceptor.preHandle(uncachedRequest, response, handler);
+    }
+
+    @Benchmark
+    public boolean cachedPreHandle() throws Exception {
+        return interceptor.preHandle(request, response, handler);
+    }
+}
@@ -0,0 +1,119 @@
+package com.sky.benchmark;
+
+import com.sky.utils.SnowflakeIdGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号生成的吞吐量：雪花算法与原来的时间戳、UUID、redis INCR方式对比，分别测单线程和8线程竞争
+ * redisIncr需要本地redis（localhost:6379），没有redis时用 -e redisIncr 排除
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderNumberBenchmark {
+
+    //竞争测试的线程数
+    private static final int CONTENDED_THREADS = 8;
+
+    @State(Scope.Benchmark)
+    public static class GeneratorState {
+
+        SnowflakeIdGenerator generator;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            //与默认配置相同，允许借用5秒
+            generator = new SnowflakeIdGenerator(1, 5000);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class RedisState {
+
+        LettuceConnectionFactory connectionFactory;
+
+        StringRedisTemplate stringRedisTemplate;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            connectionFactory = new LettuceConnectionFactory("localhost", 6379);
+            connectionFactory.afterPropertiesSet();
+            stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            stringRedisTemplate.delete("benchmark_order_number");
+            connectionFactory.destroy();
+        }
+    }
+
+    @Benchmark
+    public long snowflake(GeneratorState state) {
+        return state.generator.nextId();
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public long snowflakeContended(GeneratorState state) {
+        return state.generator.nextId();
+    }
+
+    /**
+     * 原来的订单号：当前毫秒数，同一毫秒内会重复
+     */
+    @Benchmark
+    public String currentTimeMillis() {
+        return String.valueOf(System.currentTimeMillis());
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public String currentTimeMillisContended() {
+        return String.valueOf(System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public String uuid() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public String uuidContended() {
+        return UUID.randomUUID().toString();
+    }
+
+    /**
+     * 由redis INCR分配的全局递增号，每个订单号一次网络往返
+     */
+    @Benchmark
+    public Long redisIncr(RedisState state) {
+        return state.stringRedisTemplate.opsForValue().increment("benchmark_order_number");
+    }
+
+    @Benchmark
+    @Threads(CONTENDED_THREADS)
+    public Long redisIncrContended(RedisState state) {
+        return state.stringRedisTemplate.opsForValue().increment("benchmark_order_number");
+    }
+}
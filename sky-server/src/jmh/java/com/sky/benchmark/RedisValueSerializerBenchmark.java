@@ -0,0 +1,98 @@
+package com.sky.benchmark;
+
+import com.sky.config.RedisConfiguration;
+import com.sky.entity.DishFlavor;
+import com.sky.vo.DishVO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 菜品列表缓存（20个菜品，每个2种口味）的编解码耗时：smile格式与原来的jdk序列化对比
+ * 两种格式的存储体积在setUp中输出一次
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RedisValueSerializerBenchmark {
+
+    private final RedisSerializer<Object> smileSerializer = new RedisConfiguration().redisValueSerializer();
+
+    private final RedisSerializer<Object> jdkSerializer = new JdkSerializationRedisSerializer();
+
+    private List<DishVO> dishes;
+
+    private byte[] smile;
+
+    private byte[] jdk;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dishes = dishes(20);
+        smile = smileSerializer.serialize(dishes);
+        jdk = jdkSerializer.serialize(dishes);
+        System.out.println("List<DishVO>(20) smile: " + smile.length + " bytes, jdk: " + jdk.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] smileEncode() {
+        return smileSerializer.serialize(dishes);
+    }
+
+    @Benchmark
+    public Object smileDecode() {
+        return smileSerializer.deserialize(smile);
+    }
+
+    @Benchmark
+    public byte[] jdkEncode() {
+        return jdkSerializer.serialize(dishes);
+    }
+
+    @Benchmark
+    public Object jdkDecode() {
+        return jdkSerializer.deserialize(jdk);
+    }
+
+    private static List<DishVO> dishes(int count) {
+        List<DishVO> dishes = new ArrayList<>();
+        for (long i = 1; i <= count; i++) {
+            List<DishFlavor> flavors = new ArrayList<>();
+            flavors.add(DishFlavor.builder().id(i * 10).dishId(i).name("辣度").value("[\"不辣\",\"微辣\",\"中辣\",\"重辣\"]").build());
+            flavors.add(DishFlavor.builder().id(i * 10 + 1).dishId(i).name("忌口").value("[\"不要葱\",\"不要蒜\",\"不要香菜\"]").build());
+            dishes.add(DishVO.builder()
+                    .id(i)
+                    .name("菜品" + i)
+                    .categoryId(11L)
+                    .price(new BigDecimal("38.00"))
+                    .image("https://sky-take-out.oss-cn-hangzhou.aliyuncs.com/" + i + ".png")
+                    .description("精选食材，现点现做")
+                    .status(1)
+                    .updateTime(LocalDateTime.of(2024, 1, 1, 12, 0))
+                    .flavors(flavors)
+                    .imageVariants(new LinkedHashMap<>())
+                    .build());
+        }
+        return dishes;
+    }
+}
@@ -0,0 +1,72 @@
+package com.sky.cache;
+
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
+import org.springframework.cache.support.NullValue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * redis中的缓存数据允许还原的类型
+ * 读取数据时按数据中记录的类名创建对象，不加限制时能写入redis的人可以让应用实例化任意类（反序列化漏洞），
+ * 因此只允许项目自身的类和常用的集合、日期、数值类型
+ */
+public final class AllowedTypes {
+
+    //允许的包名前缀
+    private static final List<String> ALLOWED_PREFIXES = Arrays.asList("com.sky.", "java.util.", "java.time.", "java.math.");
+
+    //允许的其他类：java.lang中的基本类型包装类，以及spring缓存表示null值的NullValue
+    private static final List<Class<?>> ALLOWED_CLASSES = Arrays.asList(
+            String.class, Boolean.class, Character.class, Byte.class, Short.class, Integer.class, Long.class,
+            Float.class, Double.class, Number.class, Enum.class, NullValue.class);
+
+    private static final Set<String> ALLOWED_CLASS_NAMES = ALLOWED_CLASSES.stream()
+            .map(Class::getName)
+            .collect(Collectors.toSet());
+
+    private AllowedTypes() {
+    }
+
+    /**
+     * 判断类名是否允许反序列化，数组按元素类型判断，基本类型数组允许
+     * @param className Class.getName()格式的类名
+     * @return
+     */
+    public static boolean isAllowed(String className) {
+        String name = className;
+        while (name.startsWith("[")) {
+            name = name.substring(1);
+        }
+        if (name.length() == 1) {
+            //基本类型数组，如[B
+            return className.startsWith("[");
+        }
+        if (name.startsWith("L") && name.endsWith(";") && className.startsWith("[")) {
+            name = name.substring(1, name.length() - 1);
+        }
+        if (ALLOWED_CLASS_NAMES.contains(name)) {
+            return true;
+        }
+        for (String prefix : ALLOWED_PREFIXES) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * jackson读取类型信息时使用的校验器
+     * @return
+     */
+    public static PolymorphicTypeValidator validator() {
+        BasicPolymorphicTypeValidator.Builder builder = BasicPolymorphicTypeValidator.builder();
+        ALLOWED_PREFIXES.forEach(builder::allowIfSubType);
+        ALLOWED_CLASSES.forEach(builder::allowIfSubType);
+        return builder.build();
+    }
+}
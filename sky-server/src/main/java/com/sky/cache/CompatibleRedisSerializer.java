@@ -0,0 +1,74 @@
+package com.sky.cache;
+
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+
+/**
+ * 兼容旧数据的redis value序列化器
+ * 写入时使用指定的序列化器；读取时识别出jdk序列化格式的旧数据则使用jdk反序列化，
+ * 因此切换序列化格式后，redis中已存在的旧数据仍可正常读取，直到过期或被清理；
+ * jdk反序列化只允许还原AllowedTypes中的类型
+ */
+public class CompatibleRedisSerializer implements RedisSerializer<Object> {
+
+    //jdk序列化数据的前两个字节（STREAM_MAGIC）
+    private static final byte JDK_MAGIC_0 = (byte) 0xAC;
+    private static final byte JDK_MAGIC_1 = (byte) 0xED;
+
+    private final RedisSerializer<Object> serializer;
+
+    public CompatibleRedisSerializer(RedisSerializer<Object> serializer) {
+        this.serializer = serializer;
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        return serializer.serialize(value);
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        if (bytes.length > 1 && bytes[0] == JDK_MAGIC_0 && bytes[1] == JDK_MAGIC_1) {
+            return deserializeJdk(bytes);
+        }
+        return serializer.deserialize(bytes);
+    }
+
+    /**
+     * jdk反序列化，遇到不允许的类型时失败
+     * @param bytes
+     * @return
+     */
+    private Object deserializeJdk(byte[] bytes) {
+        try (ObjectInputStream inputStream = new AllowedTypesObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return inputStream.readObject();
+        } catch (Exception e) {
+            throw new SerializationException("Cannot deserialize: " + e.getMessage(), e);
+        }
+    }
+
+    private static class AllowedTypesObjectInputStream extends ObjectInputStream {
+
+        AllowedTypesObjectInputStream(InputStream in) throws IOException {
+            super(in);
+        }
+
+        @Override
+        protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!AllowedTypes.isAllowed(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "type not allowed");
+            }
+            return super.resolveClass(desc);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.sky.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * 基于jackson的redis value序列化器
+ * 始终按Object类型读写，由objectMapper的类型信息配置决定写入哪些类型标识
+ */
+public class JacksonRedisSerializer implements RedisSerializer<Object> {
+
+    private final ObjectWriter writer;
+
+    private final ObjectReader reader;
+
+    public JacksonRedisSerializer(ObjectMapper objectMapper) {
+        this.writer = objectMapper.writerFor(Object.class);
+        this.reader = objectMapper.readerFor(Object.class);
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return new byte[0];
+        }
+        try {
+            return writer.writeValueAsBytes(value);
+        } catch (Exception e) {
+            throw new SerializationException("Could not write JSON: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            return reader.readValue(bytes);
+        } catch (Exception e) {
+            throw new SerializationException("Could not read JSON: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.sky.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内本地缓存（一级缓存），位于redis（二级缓存）之前
+ * 各节点的本地缓存通过redis发布订阅同步失效
+ */
+@Slf4j
+public class LocalCache {
+
+    //本地缓存失效通知的频道
+    public static final String EVICT_CHANNEL = "local_cache_evict";
+
+    private final Cache<String, Object> cache;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    public LocalCache(long maximumSize, long expireSeconds, StringRedisTemplate stringRedisTemplate) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+                .build();
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    /**
+     * 查询本地缓存，不存在时返回null
+     * @param key
+     * @return
+     */
+    public Object get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * 写入本地缓存
+     * @param key
+     * @param value
+     */
+    public void put(String key, Object value) {
+        if (value != null) {
+            cache.put(key, value);
+        }
+    }
+
+    /**
+     * 失效所有节点的本地缓存：先失效当前节点，再通过redis通知其他节点
+     * @param key 缓存key，以“*”结尾时按前缀失效
+     */
+    public void evict(String key) {
+        evictLocal(key);
+        stringRedisTemplate.convertAndSend(EVICT_CHANNEL, key);
+    }
+
+    /**
+     * 失效当前节点的本地缓存
+     * @param key 缓存key，以“*”结尾时按前缀失效
+     */
+    public void evictLocal(String key) {
+        log.debug("失效本地缓存：{}", key);
+        if (key.endsWith("*")) {
+            String prefix = key.substring(0, key.length() - 1);
+            cache.asMap().keySet().removeIf(k -> k.startsWith(prefix));
+        } else {
+            cache.invalidate(key);
+        }
+    }
+}
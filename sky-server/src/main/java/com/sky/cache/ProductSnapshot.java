@@ -0,0 +1,23 @@
+package com.sky.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 商品（菜品或套餐）快照，加入购物车时复制的商品信息
+ */
+@Data
+@AllArgsConstructor
+public class ProductSnapshot {
+
+    //名称
+    private String name;
+
+    //图片
+    private String image;
+
+    //价格
+    private BigDecimal price;
+}
@@ -0,0 +1,139 @@
+package com.sky.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.sky.entity.Dish;
+import com.sky.entity.Setmeal;
+import com.sky.mapper.DishMapper;
+import com.sky.mapper.SetmealMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内的商品快照索引，按菜品id和套餐id查询加入购物车所需的名称、图片和价格
+ * 未命中时从数据库载入；管理端修改或删除菜品、套餐后失效所有节点上的对应快照
+ */
+@Component
+@Slf4j
+public class ProductSnapshotIndex {
+
+    //快照失效通知的频道
+    public static final String EVICT_CHANNEL = "product_snapshot_evict";
+
+    private static final String DISH_PREFIX = "dish:";
+
+    private static final String SETMEAL_PREFIX = "setmeal:";
+
+    //兜底过期时间，失效通知丢失时快照最多保留这么久
+    private final Cache<String, ProductSnapshot> cache = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(30, TimeUnit.MINUTES)
+            .recordStats()
+            .build();
+
+    @Autowired
+    private DishMapper dishMapper;
+
+    @Autowired
+    private SetmealMapper setmealMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 查询菜品快照
+     * @param dishId
+     * @return 菜品不存在时返回null
+     */
+    public ProductSnapshot getDish(Long dishId) {
+        return cache.get(DISH_PREFIX + dishId, key -> {
+            Dish dish = dishMapper.getById(dishId);
+            return dish == null ? null : new ProductSnapshot(dish.getName(), dish.getImage(), dish.getPrice());
+        });
+    }
+
+    /**
+     * 查询套餐快照
+     * @param setmealId
+     * @return 套餐不存在时返回null
+     */
+    public ProductSnapshot getSetmeal(Long setmealId) {
+        return cache.get(SETMEAL_PREFIX + setmealId, key -> {
+            Setmeal setmeal = setmealMapper.getById(setmealId);
+            return setmeal == null ? null : new ProductSnapshot(setmeal.getName(), setmeal.getImage(), setmeal.getPrice());
+        });
+    }
+
+    /**
+     * 菜品修改或删除后失效其快照
+     * @param dishId
+     */
+    public void evictDish(Long dishId) {
+        evictAfterCommit(DISH_PREFIX + dishId);
+    }
+
+    /**
+     * 套餐修改或删除后失效其快照
+     * @param setmealId
+     */
+    public void evictSetmeal(Long setmealId) {
+        evictAfterCommit(SETMEAL_PREFIX + setmealId);
+    }
+
+    /**
+     * 失效当前节点的快照（收到其他节点的失效通知时调用）
+     * @param key
+     */
+    public void evictLocal(String key) {
+        cache.invalidate(key);
+    }
+
+    /**
+     * 命中率统计
+     * @return
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 定期输出命中率
+     */
+    @Scheduled(fixedRate = 600000)  //每10分钟输出一次
+    public void logStats() {
+        CacheStats stats = cache.stats();
+        log.info("商品快照索引：条目数：{}，请求数：{}，命中率：{}，载入数：{}，平均载入耗时：{}ms",
+                cache.estimatedSize(), stats.requestCount(), String.format("%.4f", stats.hitRate()),
+                stats.loadCount(), String.format("%.3f", stats.averageLoadPenalty() / 1e6));
+    }
+
+    /**
+     * 在事务提交后失效快照并通知其他节点，避免提交前被并发请求重新载入旧数据
+     * @param key
+     */
+    private void evictAfterCommit(String key) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict(key);
+                }
+            });
+        } else {
+            evict(key);
+        }
+    }
+
+    private void evict(String key) {
+        evictLocal(key);
+        stringRedisTemplate.convertAndSend(EVICT_CHANNEL, key);
+    }
+}
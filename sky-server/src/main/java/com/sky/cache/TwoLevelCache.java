@@ -0,0 +1,91 @@
+package com.sky.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+
+import java.util.concurrent.Callable;
+
+/**
+ * 二级缓存：先查询本地缓存，未命中再查询redis缓存并回填本地缓存
+ */
+public class TwoLevelCache implements Cache {
+
+    private final Cache redisCache;
+
+    private final LocalCache localCache;
+
+    public TwoLevelCache(Cache redisCache, LocalCache localCache) {
+        this.redisCache = redisCache;
+        this.localCache = localCache;
+    }
+
+    @Override
+    public String getName() {
+        return redisCache.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return redisCache.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        String localKey = localKey(key);
+        ValueWrapper valueWrapper = (ValueWrapper) localCache.get(localKey);
+        if (valueWrapper != null) {
+            return valueWrapper;
+        }
+
+        valueWrapper = redisCache.get(key);
+        localCache.put(localKey, valueWrapper);
+        return valueWrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper valueWrapper = get(key);
+        Object value = valueWrapper == null ? null : valueWrapper.get();
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper valueWrapper = get(key);
+        if (valueWrapper != null) {
+            return (T) valueWrapper.get();
+        }
+
+        T value = redisCache.get(key, valueLoader);
+        localCache.put(localKey(key), new SimpleValueWrapper(value));
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        redisCache.put(key, value);
+        localCache.put(localKey(key), new SimpleValueWrapper(value));
+    }
+
+    @Override
+    public void evict(Object key) {
+        redisCache.evict(key);
+        localCache.evict(localKey(key));
+    }
+
+    @Override
+    public void clear() {
+        redisCache.clear();
+        localCache.evict(getName() + "::*");
+    }
+
+    //本地缓存的key与redis缓存保持一致，格式为“缓存名称::key”
+    private String localKey(Object key) {
+        return getName() + "::" + key;
+    }
+}
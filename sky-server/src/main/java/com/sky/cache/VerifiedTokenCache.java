@@ -0,0 +1,121 @@
+package com.sky.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sky.utils.JwtUtil;
+import io.jsonwebtoken.Claims;
+
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 已校验jwt令牌的缓存，同一令牌只在第一次请求时校验签名和解析载荷，之后直接返回其中的id
+ * 以令牌的sha-256摘要为key，不在内存中保存令牌原文；缓存条目在令牌过期时同时过期
+ */
+public class VerifiedTokenCache {
+
+    //预先生成的秘钥对象
+    private final SecretKey secretKey;
+
+    //令牌中保存id的载荷名称
+    private final String claimName;
+
+    //判断令牌和缓存条目是否过期使用的时钟
+    private final Clock clock;
+
+    private final Cache<ByteBuffer, Entry> cache;
+
+    /**
+     * @param secretKey jwt秘钥
+     * @param claimName 令牌中保存id的载荷名称
+     * @param maximumSize 最多缓存的令牌数
+     */
+    public VerifiedTokenCache(String secretKey, String claimName, long maximumSize) {
+        this(secretKey, claimName, maximumSize, Clock.systemUTC());
+    }
+
+    /**
+     * @param secretKey jwt秘钥
+     * @param claimName 令牌中保存id的载荷名称
+     * @param maximumSize 最多缓存的令牌数
+     * @param clock 时钟，测试时可传入可调的时钟模拟令牌过期
+     */
+    public VerifiedTokenCache(String secretKey, String claimName, long maximumSize, Clock clock) {
+        this.secretKey = JwtUtil.secretKey(secretKey);
+        this.claimName = claimName;
+        this.clock = clock;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .ticker(() -> TimeUnit.MILLISECONDS.toNanos(clock.millis()))
+                .expireAfter(new Expiry<ByteBuffer, Entry>() {
+                    @Override
+                    public long expireAfterCreate(ByteBuffer key, Entry entry, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, entry.expireAtMillis - clock.millis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(ByteBuffer key, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(ByteBuffer key, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * 校验令牌并返回其中的id
+     * @param token
+     * @return
+     * @throws io.jsonwebtoken.JwtException 令牌无效或已过期
+     */
+    public Long verify(String token) {
+        ByteBuffer key = digest(token);
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null && entry.expireAtMillis > clock.millis()) {
+            return entry.id;
+        }
+
+        Claims claims = JwtUtil.parseJWT(secretKey, token, clock);
+        Long id = Long.valueOf(claims.get(claimName).toString());
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            //没有过期时间的令牌每次都校验，不缓存
+            cache.put(key, new Entry(id, expiration.getTime()));
+        }
+        return id;
+    }
+
+    private ByteBuffer digest(String token) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 缓存条目：令牌中的id和令牌的过期时间
+     */
+    private static class Entry {
+
+        private final Long id;
+
+        private final long expireAtMillis;
+
+        private Entry(Long id, long expireAtMillis) {
+            this.id = id;
+            this.expireAtMillis = expireAtMillis;
+        }
+    }
+}
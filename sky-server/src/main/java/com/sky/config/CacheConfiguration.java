@@ -0,0 +1,45 @@
+package com.sky.config;
+
+import com.sky.cache.LocalCache;
+import com.sky.cache.TwoLevelCacheManager;
+import com.sky.properties.LocalCacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+/**
+ * 配置类，用于创建本地缓存和二级缓存管理器
+ */
+@Configuration
+@Slf4j
+public class CacheConfiguration {
+
+    @Bean
+    public LocalCache localCache(LocalCacheProperties localCacheProperties, StringRedisTemplate stringRedisTemplate){
+        log.info("开始创建本地缓存对象：{}",localCacheProperties);
+        return new LocalCache(localCacheProperties.getMaximumSize(),
+                localCacheProperties.getExpireSeconds(),
+                stringRedisTemplate);
+    }
+
+    @Bean
+    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory, LocalCache localCache,
+                                     RedisSerializer<Object> redisValueSerializer){
+        log.info("开始创建二级缓存管理器...");
+        //redis缓存与redisTemplate使用相同的value序列化器
+        RedisCacheConfiguration redisCacheConfiguration = RedisCacheConfiguration.defaultCacheConfig()
+                .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(redisValueSerializer));
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(redisConnectionFactory)
+                .cacheDefaults(redisCacheConfiguration)
+                .build();
+        redisCacheManager.initializeCaches();
+        return new TwoLevelCacheManager(redisCacheManager, localCache);
+    }
+}
@@ -0,0 +1,30 @@
+package com.sky.config;
+
+import com.sky.properties.HttpClientProperties;
+import com.sky.utils.HttpClientUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * 配置类，用于按配置初始化HttpClientUtil共用的连接池
+ */
+@Configuration
+@Slf4j
+public class HttpClientConfiguration {
+
+    @Autowired
+    private HttpClientProperties httpClientProperties;
+
+    @PostConstruct
+    public void configureHttpClient(){
+        log.info("开始初始化http连接池：{}",httpClientProperties);
+        HttpClientUtil.configure(httpClientProperties.getMaxTotal(),
+                httpClientProperties.getMaxPerRoute(),
+                httpClientProperties.getKeepAlive(),
+                httpClientProperties.getAsyncThreads(),
+                httpClientProperties.getAsyncQueueCapacity());
+    }
+}
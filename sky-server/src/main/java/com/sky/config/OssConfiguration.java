@@ -1,19 +1,29 @@
 package com.sky.config;
 
 import com.sky.properties.AliOssProperties;
+import com.sky.properties.StorageProperties;
+import com.sky.storage.LocalFileStorage;
 import com.sky.utils.AliOssUtil;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 /**
- * 配置类，用于创建AliOssUtil对象
+ * 配置类，用于创建文件存储对象和文件上传线程池
  */
 @Configuration
 @Slf4j
 public class OssConfiguration {
 
-    @Bean
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(prefix = "sky.storage", name = "type", havingValue = "alioss", matchIfMissing = true)
     public AliOssUtil createAliOssUtil(AliOssProperties aliOssProperties){
         log.info("开始创建阿里云文件上传工具类对象：{}",aliOssProperties);
         return new AliOssUtil(aliOssProperties.getEndpoint(),
@@ -21,4 +31,23 @@ public class OssConfiguration {
                 aliOssProperties.getAccessKeySecret(),
                 aliOssProperties.getBucketName());
     }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "sky.storage", name = "type", havingValue = "local")
+    public LocalFileStorage localFileStorage(StorageProperties storageProperties){
+        log.info("开始创建本地文件存储对象：{}",storageProperties);
+        return new LocalFileStorage(storageProperties.getLocalDir(), storageProperties.getLocalUrlPrefix());
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService uploadExecutor(StorageProperties storageProperties){
+        log.info("开始创建文件上传线程池：{}",storageProperties);
+        int threads = storageProperties.getUploadThreads();
+        AtomicInteger threadNumber = new AtomicInteger();
+        //线程数限制同时进行的上传数，队列满时直接拒绝，不占用请求线程上传，由上传接口返回上传失败
+        return new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(storageProperties.getUploadQueueCapacity()),
+                runnable -> new Thread(runnable, "file-upload-" + threadNumber.incrementAndGet()),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
 }
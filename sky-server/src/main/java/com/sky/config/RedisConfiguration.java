@@ -1,18 +1,37 @@
 package com.sky.config;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.sky.cache.AllowedTypes;
+import com.sky.cache.CompatibleRedisSerializer;
+import com.sky.cache.JacksonRedisSerializer;
+import com.sky.cache.LocalCache;
+import com.sky.cache.ProductSnapshotIndex;
+import com.sky.websocket.WebSocketServer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.nio.charset.StandardCharsets;
+
 @Configuration
 @Slf4j
 public class RedisConfiguration {
 
     @Bean
-    public RedisTemplate redisTemplate(RedisConnectionFactory redisConnectionFactory){
+    public RedisTemplate redisTemplate(RedisConnectionFactory redisConnectionFactory,
+                                       RedisSerializer<Object> redisValueSerializer){
         log.info("开始创建redis模板对象...");
         RedisTemplate redisTemplate=new RedisTemplate();
         //设置redis的连接工厂对象
@@ -20,7 +39,57 @@ public class RedisConfiguration {
         //设置redis key的序列化器
         StringRedisSerializer stringRedisSerializer = new StringRedisSerializer();
         redisTemplate.setKeySerializer(stringRedisSerializer);
-        //redisTemplate.setValueSerializer(stringRedisSerializer);
+        redisTemplate.setHashKeySerializer(stringRedisSerializer);
+        //设置redis value的序列化器
+        redisTemplate.setValueSerializer(redisValueSerializer);
+        redisTemplate.setHashValueSerializer(redisValueSerializer);
         return redisTemplate;
     }
+
+    /**
+     * redis value的序列化器：使用smile（二进制json）格式写入，同时兼容读取jdk序列化格式的旧数据
+     * 更换序列化格式时只需替换此处传入的序列化器
+     * @return
+     */
+    @Bean
+    public RedisSerializer<Object> redisValueSerializer(){
+        //smile是json的二进制格式，重复出现的属性名和短字符串只写入一次，比文本json更紧凑、解析更快
+        SmileFactory smileFactory=new SmileFactory();
+        smileFactory.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES);
+        ObjectMapper objectMapper=new ObjectMapper(smileFactory);
+        //支持LocalDateTime等java8日期时间类型
+        objectMapper.registerModule(new JavaTimeModule());
+        //类增加或删除属性后，已缓存的数据仍可正常读取
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        //不写入值为null的属性，减小数据体积
+        objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+        //仅为声明类型为Object、接口或抽象类的值写入类型信息，读取时可还原为原始类型，只允许还原AllowedTypes中的类型
+        objectMapper.activateDefaultTyping(AllowedTypes.validator(),
+                ObjectMapper.DefaultTyping.OBJECT_AND_NON_CONCRETE, JsonTypeInfo.As.PROPERTY);
+
+        return new CompatibleRedisSerializer(new JacksonRedisSerializer(objectMapper));
+    }
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       LocalCache localCache,
+                                                                       ProductSnapshotIndex productSnapshotIndex,
+                                                                       WebSocketServer webSocketServer){
+        log.info("开始创建redis消息监听容器...");
+        RedisMessageListenerContainer container=new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        //订阅本地缓存失效通知，收到后失效当前节点的本地缓存
+        container.addMessageListener((message, pattern) ->
+                localCache.evictLocal(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(LocalCache.EVICT_CHANNEL));
+        //订阅商品快照失效通知，收到后失效当前节点的商品快照
+        container.addMessageListener((message, pattern) ->
+                productSnapshotIndex.evictLocal(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(ProductSnapshotIndex.EVICT_CHANNEL));
+        //订阅其他节点转发的websocket消息，收到后投递给当前节点的会话
+        container.addMessageListener((message, pattern) ->
+                webSocketServer.onRelayMessage(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(WebSocketServer.RELAY_CHANNEL));
+        return container;
+    }
 }
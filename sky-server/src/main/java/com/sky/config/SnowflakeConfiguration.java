@@ -0,0 +1,33 @@
+package com.sky.config;
+
+import com.sky.lock.WorkerIdLease;
+import com.sky.properties.SnowflakeProperties;
+import com.sky.utils.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 配置类，用于创建雪花算法id生成器
+ */
+@Configuration
+@Slf4j
+public class SnowflakeConfiguration {
+
+    @Bean
+    public SnowflakeIdGenerator snowflakeIdGenerator(SnowflakeProperties snowflakeProperties,
+                                                     WorkerIdLease workerIdLease){
+        Long workerId = snowflakeProperties.getWorkerId();
+        if(workerId!=null){
+            log.info("开始创建雪花算法id生成器，配置的机器id：{}",workerId);
+            return new SnowflakeIdGenerator(workerId, snowflakeProperties.getMaxBorrowMillis());
+        }
+
+        //未配置时通过redis租约领取一个未被占用的机器id，没有可用的id时启动失败
+        workerId = workerIdLease.acquire();
+        log.info("开始创建雪花算法id生成器，领取的机器id：{}",workerId);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(workerId, snowflakeProperties.getMaxBorrowMillis());
+        workerIdLease.keepAlive(generator);
+        return generator;
+    }
+}
@@ -3,6 +3,7 @@ package com.sky.config;
 import com.sky.interceptor.JwtTokenAdminInterceptor;
 import com.sky.interceptor.JwtTokenUserInterceptor;
 import com.sky.json.JacksonObjectMapper;
+import com.sky.properties.StorageProperties;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
@@ -19,6 +20,7 @@ import springfox.documentation.service.ApiInfo;
 import springfox.documentation.spi.DocumentationType;
 import springfox.documentation.spring.web.plugins.Docket;
 
+import java.nio.file.Paths;
 import java.util.List;
 
 /**
@@ -34,6 +36,9 @@ public class WebMvcConfiguration extends WebMvcConfigurationSupport {
     @Autowired
     private JwtTokenUserInterceptor jwtTokenUserInterceptor;
 
+    @Autowired
+    private StorageProperties storageProperties;
+
     /**
      * 注册自定义拦截器
      *
@@ -100,6 +105,12 @@ public class WebMvcConfiguration extends WebMvcConfigurationSupport {
         log.info("开始设置静态资源映射...");
         registry.addResourceHandler("/doc.html").addResourceLocations("classpath:/META-INF/resources/");
         registry.addResourceHandler("/webjars/**").addResourceLocations("classpath:/META-INF/resources/webjars/");
+        //使用本地文件存储时，由本服务提供上传文件的访问
+        if ("local".equals(storageProperties.getType())) {
+            String location = Paths.get(storageProperties.getLocalDir()).toAbsolutePath().toUri().toString();
+            registry.addResourceHandler("/upload/**")
+                    .addResourceLocations(location.endsWith("/") ? location : location + "/");
+        }
     }
 
     /**
@@ -2,7 +2,7 @@ package com.sky.controller.admin;
 
 import com.sky.constant.MessageConstant;
 import com.sky.result.Result;
-import com.sky.utils.AliOssUtil;
+import com.sky.service.UploadService;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
@@ -12,8 +12,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.IOException;
-import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 通用接口
@@ -24,35 +23,24 @@ import java.util.UUID;
 @Slf4j
 public class CommonController {
     @Autowired
-    private AliOssUtil aliOssUtil;
+    private UploadService uploadService;
 
     /**
      * 文件上传
+     * 上传在独立线程池中进行，请求线程不等待上传完成
      * @param file
      * @return
      */
     @PostMapping("/upload")
     @ApiOperation("文件上传")
-    public Result<String> upload(MultipartFile file){
+    public CompletableFuture<Result<String>> upload(MultipartFile file){
         log.info("文件上传：{}",file);
 
-        try {
-            //截取原始文件名的后缀（.jpg  .png等）
-            String originalFilename = file.getOriginalFilename();  //原始文件名称
-            int index = originalFilename.lastIndexOf(".");  //最后一个“.”的索引
-            String extension = originalFilename.substring(index); //截取字符串(即后缀)
-
-            //构建新文件名称
-            String objectName=UUID.randomUUID().toString()+extension;
-
-            //获取文件的请求路径
-            String filePath = aliOssUtil.upload(file.getBytes(), objectName);
-            return Result.success(filePath);
-
-        } catch (IOException e) {
-            log.error("文件上传失败：{}",e);
-        }
-
-        return Result.error(MessageConstant.UPLOAD_FAILED);
+        return uploadService.upload(file)
+                .thenApply(Result::success)
+                .exceptionally(e -> {
+                    log.error("文件上传失败", e);
+                    return Result.error(MessageConstant.UPLOAD_FAILED);
+                });
     }
 }
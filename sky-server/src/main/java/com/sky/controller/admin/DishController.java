@@ -1,5 +1,6 @@
 package com.sky.controller.admin;
 
+import com.sky.cache.LocalCache;
 import com.sky.dto.DishDTO;
 import com.sky.dto.DishPageQueryDTO;
 import com.sky.entity.Dish;
@@ -14,8 +15,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * 菜品管理
@@ -30,6 +35,8 @@ public class DishController {
     private DishService dishService;
     @Autowired
     private RedisTemplate redisTemplate;
+    @Autowired
+    private LocalCache localCache;
 
     /**
      * 新增菜品
@@ -42,9 +49,8 @@ public class DishController {
         log.info("新增菜品：{}",dishDTO);
         dishService.saveWithFlavor(dishDTO);
 
-        //清理缓存数据
-        String key="dish_"+dishDTO.getCategoryId();
-        cleanCache(key);
+        //清理缓存数据:只清理新增菜品所属分类的缓存
+        cleanCache(Collections.singletonList(dishDTO.getCategoryId()));
         return Result.success();
     }
 
@@ -71,10 +77,12 @@ public class DishController {
     @ApiOperation("菜品批量删除")
     public Result delete(@RequestParam List<Long> ids){
         log.info("菜品批量删除：{}",ids);
+        //删除前先查出受影响的分类
+        List<Long> categoryIds = dishService.getCategoryIdsByIds(ids);
         dishService.deleteBatch(ids);
 
-        //清理缓存数据:将所有菜品缓存数据都删除
-        cleanCache("dish_*");
+        //清理缓存数据:只清理被删除菜品所属分类的缓存
+        cleanCache(categoryIds);
         return Result.success();
     }
 
@@ -102,10 +110,15 @@ public class DishController {
     @ApiOperation("修改菜品")
     public Result update(@RequestBody DishDTO dishDTO){
         log.info("修改菜品：{}",dishDTO);
+        //修改前先查出原分类，菜品可能被移动到其他分类
+        Set<Long> categoryIds = new HashSet<>(dishService.getCategoryIdsByIds(Collections.singletonList(dishDTO.getId())));
+        if(dishDTO.getCategoryId()!=null){
+            categoryIds.add(dishDTO.getCategoryId());
+        }
         dishService.updateWithFlavor(dishDTO);
 
-        //清理缓存数据:将所有菜品缓存数据都删除
-        cleanCache("dish_*");
+        //清理缓存数据:只清理原分类和新分类的缓存
+        cleanCache(categoryIds);
         return Result.success();
     }
 
@@ -122,8 +135,8 @@ public class DishController {
         log.info("菜品起售、停售：{},{}",status,id);
         dishService.startOrStop(status,id);
 
-        //清理缓存数据:将所有菜品缓存数据都删除
-        cleanCache("dish_*");
+        //清理缓存数据:只清理该菜品所属分类的缓存
+        cleanCache(dishService.getCategoryIdsByIds(Collections.singletonList(id)));
         return Result.success();
     }
 
@@ -143,11 +156,18 @@ public class DishController {
 
 
     /**
-     * 清理缓存数据
-     * @param pattern
+     * 清理指定分类的菜品缓存数据
+     * 缓存key由分类id直接构造（dish_分类id），无需通过keys扫描整个redis
+     * @param categoryIds
      */
-    private void cleanCache(String pattern){
-        Set keys = redisTemplate.keys(pattern);
+    private void cleanCache(Collection<Long> categoryIds){
+        if(categoryIds==null || categoryIds.isEmpty()){
+            return;
+        }
+        List<String> keys = categoryIds.stream().map(categoryId -> "dish_" + categoryId).collect(Collectors.toList());
         redisTemplate.delete(keys);
+
+        //通知所有节点失效本地缓存
+        keys.forEach(localCache::evict);
     }
 }
@@ -12,6 +12,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -97,11 +98,34 @@ public class ReportController {
 
     /**
      * 导出Excel报表
-     * @return
+     * @param begin
+     * @param end
+     * @param response
      */
     @GetMapping("/export")
     @ApiOperation("导出Excel报表")
-    public void export(HttpServletResponse response){
-        reportService.exportBusinessData(response);
+    public void export(
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end,
+            HttpServletResponse response){
+        log.info("导出Excel报表：{},{}",begin,end);
+        reportService.exportBusinessData(begin,end,response);
+    }
+
+
+    /**
+     * 重建运营数据汇总
+     * @param begin
+     * @param end
+     * @return
+     */
+    @PostMapping("/rebuild")
+    @ApiOperation("重建运营数据汇总")
+    public Result rebuild(
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate begin,
+            @DateTimeFormat(pattern = "yyyy-MM-dd") LocalDate end){
+        log.info("重建运营数据汇总：{},{}",begin,end);
+        reportService.rebuildBusinessStats(begin,end);
+        return Result.success();
     }
 }
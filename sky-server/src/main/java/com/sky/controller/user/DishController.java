@@ -1,5 +1,6 @@
 package com.sky.controller.user;
 
+import com.sky.cache.LocalCache;
 import com.sky.constant.StatusConstant;
 import com.sky.entity.Dish;
 import com.sky.result.Result;
@@ -28,6 +29,8 @@ public class DishController {
     private DishService dishService;
     @Autowired
     private RedisTemplate redisTemplate;
+    @Autowired
+    private LocalCache localCache;
 
     /**
      * 根据分类id查询菜品
@@ -38,11 +41,17 @@ public class DishController {
     @ApiOperation("根据分类id查询菜品")
     public Result<List<DishVO>> list(Long categoryId){
         //从缓存中查询
-        //1、构造redis中的key，规则为“dish_分类id”
+        //1、构造缓存的key，规则为“dish_分类id”
         String key="dish_"+categoryId;
-        //2、查询redis中是否存在符合的菜品数据，存在则直接返回，不存在则查询数据库
-        List<DishVO> list= (List<DishVO>) redisTemplate.opsForValue().get(key);
+        //2、先查询本地缓存，存在则直接返回
+        List<DishVO> list= (List<DishVO>) localCache.get(key);
+        if(list!=null && list.size()>0){
+            return Result.success(list);
+        }
+        //3、再查询redis中是否存在符合的菜品数据，存在则载入本地缓存并返回，不存在则查询数据库
+        list= (List<DishVO>) redisTemplate.opsForValue().get(key);
         if(list!=null && list.size()>0){
+            localCache.put(key,list);
             return Result.success(list);
         }
 
@@ -53,6 +62,7 @@ public class DishController {
 
         list=dishService.listWithFlavor(dish);
         redisTemplate.opsForValue().set(key,list);  //将数据载入缓存
+        localCache.put(key,list);
         return Result.success(list);
     }
 }
@@ -1,15 +1,15 @@
 package com.sky.interceptor;
 
+import com.sky.cache.VerifiedTokenCache;
 import com.sky.constant.JwtClaimsConstant;
 import com.sky.context.BaseContext;
 import com.sky.properties.JwtProperties;
-import com.sky.utils.JwtUtil;
-import io.jsonwebtoken.Claims;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerInterceptor;
+import javax.annotation.PostConstruct;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
@@ -20,9 +20,20 @@ import javax.servlet.http.HttpServletResponse;
 @Slf4j
 public class JwtTokenAdminInterceptor implements HandlerInterceptor {
 
+    //最多缓存的已校验令牌数
+    private static final long TOKEN_CACHE_SIZE = 10000;
+
     @Autowired
     private JwtProperties jwtProperties;
 
+    //已校验令牌的缓存
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @PostConstruct
+    public void init() {
+        verifiedTokenCache = new VerifiedTokenCache(jwtProperties.getAdminSecretKey(), JwtClaimsConstant.EMP_ID, TOKEN_CACHE_SIZE);
+    }
+
     /**
      * 校验jwt
      *
@@ -44,11 +55,10 @@ public class JwtTokenAdminInterceptor implements HandlerInterceptor {
 
         //2、校验令牌
         try {
-            log.info("jwt校验:{}", token);
-            Claims claims = JwtUtil.parseJWT(jwtProperties.getAdminSecretKey(), token);
-            Long empId = Long.valueOf(claims.get(JwtClaimsConstant.EMP_ID).toString());
+            //同一令牌只在第一次请求时校验签名，之后直接从缓存中取出id；不在日志中输出令牌原文
+            Long empId = verifiedTokenCache.verify(token);
             BaseContext.setCurrentId(empId);
-            log.info("当前员工id：{}", empId);
+            log.debug("当前员工id：{}", empId);
             //3、通过，放行
             return true;
         } catch (Exception ex) {
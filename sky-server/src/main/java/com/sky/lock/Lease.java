@@ -0,0 +1,24 @@
+package com.sky.lock;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * 持有中的租约锁
+ */
+@Data
+@AllArgsConstructor
+public class Lease {
+
+    //锁名称
+    private String name;
+
+    //防护令牌，每次获取锁时单调递增，写入数据时用于拒绝被取代的旧持有者
+    private long token;
+
+    //写入redis的锁值，由节点id和令牌组成，用于校验锁是否仍属于自己
+    private String value;
+
+    //获取锁的时间（毫秒时间戳）
+    private long acquireTime;
+}
@@ -0,0 +1,150 @@
+package com.sky.lock;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+/**
+ * 基于redis的租约锁，用于保证集群中同一时刻只有一个节点执行定时任务
+ * 锁带有过期时间，持有节点宕机后自动释放；每次获取锁时生成单调递增的令牌。
+ * 租约过期后其他节点可能同时执行，写入数据时需在同一事务中校验令牌（见JobLeaseMapper#fence），拒绝被取代的旧持有者的写入
+ */
+@Component
+@Slf4j
+public class LeaseLock {
+
+    //锁key的前缀
+    private static final String LOCK_PREFIX = "lock:";
+
+    //防护令牌计数器key的前缀
+    private static final String TOKEN_PREFIX = "lock_token:";
+
+    //锁不存在时分配令牌并加锁，返回令牌；锁已存在时返回nil，不消耗令牌
+    //锁key和令牌key使用相同的hash tag，集群模式下位于同一个slot
+    private static final RedisScript<Long> ACQUIRE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then return nil end " +
+                    "local token = redis.call('incr', KEYS[2]) " +
+                    "redis.call('set', KEYS[1], ARGV[1] .. ':' .. token, 'px', ARGV[2]) " +
+                    "return token",
+            Long.class);
+
+    //当前节点的id
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    //锁值与自己持有的一致时才删除，避免删除其他节点已重新获取的锁
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    //锁值与自己持有的一致时才延长过期时间
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 尝试获取锁，不等待
+     * @param name 锁名称
+     * @param leaseMillis 租约时长（毫秒），应大于任务的最长执行时间
+     * @return 获取成功返回租约，锁被其他节点持有或redis不可用时返回null
+     */
+    public Lease tryAcquire(String name, long leaseMillis) {
+        try {
+            long acquireTime = System.currentTimeMillis();
+            Long token = stringRedisTemplate.execute(ACQUIRE_SCRIPT,
+                    Arrays.asList(lockKey(name), tokenKey(name)), NODE_ID, String.valueOf(leaseMillis));
+            return token == null ? null : new Lease(name, token, NODE_ID + ":" + token, acquireTime);
+        } catch (Exception e) {
+            log.error("获取锁：{}失败：{}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 校验租约是否仍然有效（未过期且未被其他节点取代），长任务分批执行时用于尽早停止
+     * 校验与后续操作之间不是原子的，校验通过后租约仍可能过期
+     * @param lease
+     * @return
+     */
+    public boolean isHeld(Lease lease) {
+        try {
+            return lease.getValue().equals(stringRedisTemplate.opsForValue().get(lockKey(lease.getName())));
+        } catch (Exception e) {
+            log.error("校验锁：{}失败：{}", lease.getName(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 续期，把租约的过期时间重置为leaseMillis之后
+     * @param lease
+     * @param leaseMillis
+     * @return 续期成功返回true，锁已过期、已被其他节点持有或redis不可用时返回false
+     */
+    public boolean renew(Lease lease, long leaseMillis) {
+        try {
+            Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT,
+                    Collections.singletonList(lockKey(lease.getName())), lease.getValue(), String.valueOf(leaseMillis));
+            return renewed != null && renewed == 1;
+        } catch (Exception e) {
+            log.error("续期锁：{}失败：{}", lease.getName(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 释放锁，但保证从获取起至少持有lockAtLeastForMillis
+     * 各节点的定时任务按各自的时钟触发，任务很快结束时立即释放锁，时钟稍慢的节点随后会获取锁再执行一次；
+     * 未到最短持有时间时把锁的过期时间改为剩余的时间，由redis到期删除
+     * @param lease
+     * @param lockAtLeastForMillis 最短持有时间（毫秒），应大于节点间的时钟偏差且小于任务的触发间隔
+     */
+    public void release(Lease lease, long lockAtLeastForMillis) {
+        long remaining = lease.getAcquireTime() + lockAtLeastForMillis - System.currentTimeMillis();
+        if (remaining > 0) {
+            renew(lease, remaining);
+        } else {
+            release(lease);
+        }
+    }
+
+    /**
+     * 释放锁，锁已过期或已被其他节点持有时不做处理
+     * @param lease
+     */
+    public void release(Lease lease) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT,
+                    Collections.singletonList(lockKey(lease.getName())), lease.getValue());
+        } catch (Exception e) {
+            log.warn("释放锁：{}失败：{}", lease.getName(), e.getMessage());
+        }
+    }
+
+    /**
+     * 锁的key，锁名称作为hash tag
+     * @param name
+     * @return
+     */
+    private static String lockKey(String name) {
+        return LOCK_PREFIX + "{" + name + "}";
+    }
+
+    /**
+     * 令牌计数器的key，与锁的key位于同一个slot
+     * @param name
+     * @return
+     */
+    private static String tokenKey(String name) {
+        return TOKEN_PREFIX + "{" + name + "}";
+    }
+}
@@ -0,0 +1,103 @@
+package com.sky.lock;
+
+import com.sky.utils.SnowflakeIdGenerator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 雪花算法机器id的租约
+ * 启动时从0~1023中领取一个未被占用的机器id，后台线程定期续期；节点宕机后租约过期，机器id可被新节点领取。
+ * 续期失败时机器id只在原租约到期前有效，避免租约被其他节点领取后两个节点使用同一机器id
+ */
+@Component
+@Slf4j
+public class WorkerIdLease {
+
+    //锁名称前缀，每个机器id对应一个锁
+    private static final String LOCK_NAME_PREFIX = "snowflake_worker:";
+
+    //租约时长（毫秒）
+    private static final long LEASE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    //续期间隔（毫秒），租约到期前有两次续期机会
+    private static final long RENEW_INTERVAL_MILLIS = LEASE_MILLIS / 3;
+
+    @Autowired
+    private LeaseLock leaseLock;
+
+    private volatile Lease lease;
+
+    private ScheduledExecutorService heartbeat;
+
+    /**
+     * 领取一个未被占用的机器id，从随机位置开始依次尝试，避免多个节点同时启动时争抢同一个id
+     * @return
+     * @throws IllegalStateException 所有机器id都已被占用（或redis不可用）
+     */
+    public synchronized long acquire() {
+        int count = (int) SnowflakeIdGenerator.MAX_WORKER_ID + 1;
+        int start = ThreadLocalRandom.current().nextInt(count);
+        for (int i = 0; i < count; i++) {
+            long workerId = (start + i) % count;
+            Lease acquired = leaseLock.tryAcquire(LOCK_NAME_PREFIX + workerId, LEASE_MILLIS);
+            if (acquired != null) {
+                lease = acquired;
+                log.info("领取机器id：{}，令牌：{}", workerId, acquired.getToken());
+                return workerId;
+            }
+        }
+        throw new IllegalStateException("没有可用的雪花算法机器id");
+    }
+
+    /**
+     * 启动后台续期，续期成功后延长id生成器的有效期
+     * @param generator 使用本租约机器id的生成器
+     */
+    public synchronized void keepAlive(SnowflakeIdGenerator generator) {
+        generator.setValidUntil(System.currentTimeMillis() + LEASE_MILLIS);
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snowflake-worker-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleWithFixedDelay(() -> renew(generator),
+                RENEW_INTERVAL_MILLIS, RENEW_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private void renew(SnowflakeIdGenerator generator) {
+        //以续期前的时间计算有效期，不会晚于redis中的实际过期时间
+        long renewTime = System.currentTimeMillis();
+        Lease current = lease;
+        if (leaseLock.renew(current, LEASE_MILLIS)) {
+            generator.setValidUntil(renewTime + LEASE_MILLIS);
+            return;
+        }
+
+        //租约已过期但未被其他节点领取时重新获取
+        Lease acquired = leaseLock.tryAcquire(current.getName(), LEASE_MILLIS);
+        if (acquired != null) {
+            lease = acquired;
+            generator.setValidUntil(renewTime + LEASE_MILLIS);
+            log.warn("机器id：{}的租约已过期，重新获取成功", generator.getWorkerId());
+        } else {
+            log.error("机器id：{}的租约续期失败，租约到期后将停止生成id", generator.getWorkerId());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void release() {
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+        if (lease != null) {
+            leaseLock.release(lease);
+        }
+    }
+}
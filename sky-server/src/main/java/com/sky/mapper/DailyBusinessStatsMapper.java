@@ -0,0 +1,33 @@
+package com.sky.mapper;
+
+import com.sky.entity.DailyBusinessStats;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Mapper
+public interface DailyBusinessStatsMapper {
+
+    /**
+     * 增量累加当天的运营数据，当天记录不存在时自动插入
+     * @param dailyBusinessStats
+     */
+    void increase(DailyBusinessStats dailyBusinessStats);
+
+    /**
+     * 批量写入运营数据，已存在的记录直接覆盖（用于重建汇总数据）
+     * @param dailyBusinessStatsList
+     */
+    void replaceBatch(List<DailyBusinessStats> dailyBusinessStatsList);
+
+    /**
+     * 查询指定日期区间内的运营数据
+     * @param begin
+     * @param end
+     * @return
+     */
+    @Select("select * from daily_business_stats where date between #{begin} and #{end}")
+    List<DailyBusinessStats> list(LocalDate begin, LocalDate end);
+}
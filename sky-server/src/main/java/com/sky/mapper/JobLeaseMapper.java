@@ -0,0 +1,26 @@
+package com.sky.mapper;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Update;
+
+@Mapper
+public interface JobLeaseMapper {
+
+    /**
+     * 任务的防护令牌记录不存在时插入
+     * @param name
+     */
+    @Insert("insert ignore into job_lease (name, token) values (#{name}, 0)")
+    void insertIfAbsent(String name);
+
+    /**
+     * 令牌不小于已记录的令牌时更新记录，并对该行加锁直到事务结束
+     * 在写入业务数据的同一事务中调用，新的持有者写入过数据后，旧持有者的写入被拒绝
+     * @param name
+     * @param token
+     * @return 匹配的行数（连接默认返回匹配而非实际修改的行数，令牌相同时也返回1），0表示已被新的持有者取代
+     */
+    @Update("update job_lease set token = #{token} where name = #{name} and token <= #{token}")
+    int fence(String name, long token);
+}
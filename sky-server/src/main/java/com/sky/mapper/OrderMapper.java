@@ -2,7 +2,9 @@ package com.sky.mapper;
 
 import com.github.pagehelper.Page;
 import com.sky.dto.GoodsSalesDTO;
+import com.sky.dto.OrderStatusCountDTO;
 import com.sky.dto.OrdersPageQueryDTO;
+import com.sky.dto.TurnoverDailyDTO;
 import com.sky.entity.Orders;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
@@ -58,13 +60,32 @@ public interface OrderMapper {
     Integer countStatus(Integer status);
 
     /**
-     * 根据订单状态和下单时间查询订单数据
+     * 根据订单状态和下单时间批量修改订单，每次最多修改limit条
+     * @param orders 要修改的字段
+     * @param status
+     * @param orderTime
+     * @param limit
+     * @return 修改的行数
+     */
+    int updateByStatusAndOrderTimeLT(Orders orders, Integer status, LocalDateTime orderTime, int limit);
+
+    /**
+     * 根据订单id集合批量修改仍处于指定状态的订单
+     * @param orders 要修改的字段
+     * @param ids
+     * @param status
+     * @return 修改的行数
+     */
+    int updateByIdsAndStatus(Orders orders, List<Long> ids, Integer status);
+
+    /**
+     * 根据订单状态和下单时间查询最早的下单时间
      * @param status
      * @param orderTime
      * @return
      */
-    @Select("select * from orders where status = #{status} and order_time < #{orderTime}")
-    List<Orders> getByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime);
+    @Select("select min(order_time) from orders where status = #{status} and order_time < #{orderTime}")
+    LocalDateTime getMinOrderTimeByStatusAndOrderTimeLT(Integer status, LocalDateTime orderTime);
 
     /**
      * 根据动态条件统计营业额数据
@@ -73,6 +94,13 @@ public interface OrderMapper {
      */
     Double sumAmountByMap(Map map);
 
+    /**
+     * 根据动态条件按天分组统计营业额数据
+     * @param map
+     * @return
+     */
+    List<TurnoverDailyDTO> sumAmountGroupByDate(Map map);
+
     /**
      * 根据动态条件统计订单数量
      * @param map
@@ -80,6 +108,20 @@ public interface OrderMapper {
      */
     Integer countByMap(Map map);
 
+    /**
+     * 根据动态条件按订单状态分组统计订单数量
+     * @param map
+     * @return
+     */
+    List<OrderStatusCountDTO> countGroupByStatus(Map map);
+
+    /**
+     * 根据动态条件按天和订单状态分组统计订单数量
+     * @param map
+     * @return
+     */
+    List<OrderStatusCountDTO> countGroupByDateAndStatus(Map map);
+
     /**
      * 统计指定时间区间内的销量排名top10
      * @param begin
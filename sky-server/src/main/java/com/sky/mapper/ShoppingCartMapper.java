@@ -52,4 +52,17 @@ public interface ShoppingCartMapper {
      * @param shoppingCartList
      */
     void insertBatch(List<ShoppingCart> shoppingCartList);
+
+    /**
+     * 批量写入数据，同一用户的同一商品已存在时更新份数（依赖唯一索引uk_user_item）
+     * @param shoppingCartList
+     */
+    void upsertBatch(List<ShoppingCart> shoppingCartList);
+
+    /**
+     * 删除用户购物车中不在给定集合内的商品
+     * @param userId
+     * @param shoppingCartList
+     */
+    void deleteByUserIdAndNotIn(Long userId, List<ShoppingCart> shoppingCartList);
 }
@@ -1,9 +1,11 @@
 package com.sky.mapper;
 
+import com.sky.dto.UserDailyDTO;
 import com.sky.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Select;
 
+import java.util.List;
 import java.util.Map;
 
 @Mapper
@@ -17,16 +19,38 @@ public interface UserMapper {
     @Select("select * from user where openid = #{openid}")
     User getByOpenid(String openid);
 
+    /**
+     * 根据openid查询用户（加锁读取，能读到其他事务已提交的注册）
+     * @param openid
+     * @return
+     */
+    @Select("select * from user where openid=#{openid} for update")
+    User getByOpenidForUpdate(String openid);
+
     /**
      * 插入用户
      * @param user
      */
     void insert(User user);
 
+    /**
+     * 插入用户，openid已存在时忽略（依赖唯一索引uk_openid）
+     * @param user
+     * @return 插入的行数，openid已存在时为0
+     */
+    int insertIgnore(User user);
+
     /**
      * 根据动态条件统计用户数量
      * @param map
      * @return
      */
     Integer countByMap(Map map);
+
+    /**
+     * 根据动态条件按天分组统计新增用户数量
+     * @param map
+     * @return
+     */
+    List<UserDailyDTO> countGroupByDate(Map map);
 }
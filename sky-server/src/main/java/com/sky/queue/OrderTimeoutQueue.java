@@ -0,0 +1,121 @@
+package com.sky.queue;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单超时延迟队列
+ * 使用redis有序集合保存待支付订单，score为超时时间戳，到期的订单由定时任务按需取出，
+ * redis不可用时降级到进程内的延迟队列
+ */
+@Component
+@Slf4j
+public class OrderTimeoutQueue {
+
+    //待支付订单的超时时间（分钟）
+    public static final int TIMEOUT_MINUTES = 15;
+
+    //redis中保存待支付订单的有序集合
+    private static final String KEY = "order_timeout";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    //redis不可用时使用的进程内延迟队列，重启后丢失，由定时扫描兜底
+    private final DelayQueue<Expiry> localQueue = new DelayQueue<>();
+
+    /**
+     * 加入延迟队列，到达超时时间后可被取出
+     * @param orderId
+     * @param deadline 超时时间
+     */
+    public void schedule(Long orderId, LocalDateTime deadline) {
+        long deadlineMillis = deadline.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        try {
+            stringRedisTemplate.opsForZSet().add(KEY, orderId.toString(), deadlineMillis);
+        } catch (Exception e) {
+            log.warn("订单：{}加入redis延迟队列失败，使用本地延迟队列：{}", orderId, e.getMessage());
+            localQueue.offer(new Expiry(orderId, deadlineMillis));
+        }
+    }
+
+    /**
+     * 从延迟队列中移除（订单已支付或已取消）
+     * @param orderId
+     */
+    public void cancel(Long orderId) {
+        localQueue.removeIf(expiry -> expiry.orderId.equals(orderId));
+        try {
+            stringRedisTemplate.opsForZSet().remove(KEY, orderId.toString());
+        } catch (Exception e) {
+            log.warn("订单：{}移出redis延迟队列失败：{}", orderId, e.getMessage());
+        }
+    }
+
+    /**
+     * 取出已到超时时间的订单
+     * 多个节点同时取出时，只有成功从有序集合中删除的节点拿到该订单
+     * @param limit 最多取出的数量
+     * @return 订单id
+     */
+    public List<Long> pollExpired(int limit) {
+        List<Long> orderIds = new ArrayList<>();
+
+        Expiry expiry;
+        while (orderIds.size() < limit && (expiry = localQueue.poll()) != null) {
+            orderIds.add(expiry.orderId);
+        }
+
+        try {
+            Set<String> members = stringRedisTemplate.opsForZSet()
+                    .rangeByScore(KEY, 0, System.currentTimeMillis(), 0, limit - orderIds.size());
+            if (members != null) {
+                for (String member : members) {
+                    Long removed = stringRedisTemplate.opsForZSet().remove(KEY, member);
+                    if (removed != null && removed > 0) {
+                        orderIds.add(Long.valueOf(member));
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("读取redis延迟队列失败：{}", e.getMessage());
+        }
+        return orderIds;
+    }
+
+    /**
+     * 本地延迟队列中的元素
+     */
+    private static class Expiry implements Delayed {
+
+        private final Long orderId;
+
+        private final long deadlineMillis;
+
+        private Expiry(Long orderId, long deadlineMillis) {
+            this.orderId = orderId;
+            this.deadlineMillis = deadlineMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(deadlineMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            return Long.compare(getDelay(TimeUnit.MILLISECONDS), o.getDelay(TimeUnit.MILLISECONDS));
+        }
+    }
+}
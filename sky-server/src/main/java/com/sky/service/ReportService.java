@@ -10,6 +10,9 @@ import java.time.LocalDate;
 
 public interface ReportService {
 
+    //统计、导出和重建的日期区间最多包含的天数
+    int MAX_REPORT_DAYS = 366;
+
     /**
      * 统计指定时间区间内的营业额数据
      * @param begin
@@ -43,8 +46,17 @@ public interface ReportService {
     SalesTop10ReportVO getSalesTop10(LocalDate begin, LocalDate end);
 
     /**
-     * 导出Excel运营数据报表
+     * 导出指定日期区间内的Excel运营数据报表，未指定时默认导出最近30天
+     * @param begin
+     * @param end
      * @param response
      */
-    void exportBusinessData(HttpServletResponse response);
+    void exportBusinessData(LocalDate begin, LocalDate end, HttpServletResponse response);
+
+    /**
+     * 根据原始数据重建指定日期区间内的每日运营数据汇总，只重建今天之前的日期
+     * @param begin
+     * @param end
+     */
+    void rebuildBusinessStats(LocalDate begin, LocalDate end);
 }
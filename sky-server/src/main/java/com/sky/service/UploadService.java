@@ -0,0 +1,15 @@
+package com.sky.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface UploadService {
+
+    /**
+     * 异步上传文件
+     * @param file
+     * @return 文件访问路径
+     */
+    CompletableFuture<String> upload(MultipartFile file);
+}
@@ -1,11 +1,13 @@
 package com.sky.service;
 
+import com.sky.entity.DailyBusinessStats;
 import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
 import com.sky.vo.OrderOverViewVO;
 import com.sky.vo.SetmealOverViewVO;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 
 public interface WorkSpaceService {
 
@@ -17,6 +19,13 @@ public interface WorkSpaceService {
      */
     BusinessDataVO getBusinessData(LocalDateTime begin, LocalDateTime end);
 
+    /**
+     * 根据每日运营数据汇总计算营业额、有效订单、订单完成率、平均客单价、新增用户量
+     * @param statsList
+     * @return
+     */
+    BusinessDataVO getBusinessData(Collection<DailyBusinessStats> statsList);
+
     /**
      * 查询订单管理数据
      * @param begin
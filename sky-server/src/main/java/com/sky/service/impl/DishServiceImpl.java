@@ -2,6 +2,7 @@ package com.sky.service.impl;
 
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import com.sky.cache.ProductSnapshotIndex;
 import com.sky.constant.MessageConstant;
 import com.sky.constant.StatusConstant;
 import com.sky.dto.DishDTO;
@@ -16,6 +17,7 @@ import com.sky.mapper.SetmealDishMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.result.PageResult;
 import com.sky.service.DishService;
+import com.sky.utils.ImageUtil;
 import com.sky.vo.DishVO;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -24,6 +26,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class DishServiceImpl implements DishService {
@@ -39,6 +43,9 @@ public class DishServiceImpl implements DishService {
     @Autowired
     private SetmealMapper setmealMapper;
 
+    @Autowired
+    private ProductSnapshotIndex productSnapshotIndex;
+
     /**
      * 新增菜品和对应的口味
      * @param dishDTO
@@ -76,6 +83,7 @@ public class DishServiceImpl implements DishService {
     public PageResult pageQuery(DishPageQueryDTO dishPageQueryDTO) {
         PageHelper.startPage(dishPageQueryDTO.getPage(),dishPageQueryDTO.getPageSize());
         Page<DishVO> page=dishMapper.pageQuery(dishPageQueryDTO);
+        page.getResult().forEach(dishVO -> dishVO.setImageVariants(ImageUtil.variantUrls(dishVO.getImage())));
         return new PageResult(page.getTotal(),page.getResult());
     }
 
@@ -108,6 +116,7 @@ public class DishServiceImpl implements DishService {
         for (Long id : ids) {
             dishMapper.deleteById(id);
             dishFlavorMapper.deleteByDishId(id);
+            productSnapshotIndex.evictDish(id);  //失效加入购物车用的菜品快照
         }
     }
 
@@ -129,6 +138,7 @@ public class DishServiceImpl implements DishService {
         DishVO dishVO = new DishVO();
         BeanUtils.copyProperties(dish,dishVO);
         dishVO.setFlavors(dishFlavors);
+        dishVO.setImageVariants(ImageUtil.variantUrls(dish.getImage()));
 
         return dishVO;
     }
@@ -145,6 +155,7 @@ public class DishServiceImpl implements DishService {
         Dish dish = new Dish();
         BeanUtils.copyProperties(dishDTO,dish);
         dishMapper.update(dish);
+        productSnapshotIndex.evictDish(dish.getId());  //失效加入购物车用的菜品快照
 
         //修改口味表：先删除原有数据，再重新插入现有数据
         dishFlavorMapper.deleteByDishId(dishDTO.getId());
@@ -217,18 +228,38 @@ public class DishServiceImpl implements DishService {
         List<Dish> dishes = dishMapper.list(dish);
 
         List<DishVO> voList=new ArrayList<>();
-        for (Dish d : dishes) {
-            //查询每个菜品对应的口味数据
-            List<DishFlavor> flavors = dishFlavorMapper.getByDishId(d.getId());
+        if(dishes==null || dishes.size()==0){
+            return voList;
+        }
 
+        //批量查询所有菜品对应的口味数据，并按菜品id分组
+        List<Long> dishIds = dishes.stream().map(Dish::getId).collect(Collectors.toList());
+        Map<Long, List<DishFlavor>> flavorMap = dishFlavorMapper.getByDishIds(dishIds).stream()
+                .collect(Collectors.groupingBy(DishFlavor::getDishId));
+
+        for (Dish d : dishes) {
             //构造DishVO
             DishVO dishVO = new DishVO();
             BeanUtils.copyProperties(d,dishVO);
-            dishVO.setFlavors(flavors);
+            dishVO.setFlavors(flavorMap.getOrDefault(d.getId(), new ArrayList<>()));
+            dishVO.setImageVariants(ImageUtil.variantUrls(d.getImage()));  //菜单页面使用缩略图
 
             //添加到集合中
             voList.add(dishVO);
         }
         return voList;
     }
+
+    /**
+     * 根据菜品id集合查询所属的分类id
+     * @param ids
+     * @return
+     */
+    @Override
+    public List<Long> getCategoryIdsByIds(List<Long> ids) {
+        if(ids==null || ids.size()==0){
+            return new ArrayList<>();
+        }
+        return dishMapper.getCategoryIdsByIds(ids);
+    }
 }
@@ -4,9 +4,11 @@ import com.alibaba.fastjson.JSON;
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
 import com.sky.constant.MessageConstant;
+import com.sky.constant.WebSocketConstant;
 import com.sky.context.BaseContext;
 import com.sky.dto.*;
 import com.sky.entity.AddressBook;
+import com.sky.entity.DailyBusinessStats;
 import com.sky.entity.OrderDetail;
 import com.sky.entity.Orders;
 import com.sky.entity.ShoppingCart;
@@ -14,11 +16,14 @@ import com.sky.exception.AddressBookBusinessException;
 import com.sky.exception.OrderBusinessException;
 import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.mapper.AddressBookMapper;
+import com.sky.mapper.DailyBusinessStatsMapper;
 import com.sky.mapper.OrderDetailMapper;
 import com.sky.mapper.OrderMapper;
-import com.sky.mapper.ShoppingCartMapper;
+import com.sky.queue.OrderTimeoutQueue;
 import com.sky.result.PageResult;
 import com.sky.service.OrderService;
+import com.sky.store.ShoppingCartStore;
+import com.sky.utils.SnowflakeIdGenerator;
 import com.sky.vo.OrderStatisticsVO;
 import com.sky.vo.OrderSubmitVO;
 import com.sky.vo.OrderVO;
@@ -48,11 +53,20 @@ public class OrderServiceImpl implements OrderService {
     private AddressBookMapper addressBookMapper;
 
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;
+    private ShoppingCartStore shoppingCartStore;
+
+    @Autowired
+    private DailyBusinessStatsMapper dailyBusinessStatsMapper;
 
     @Autowired
     private WebSocketServer webSocketServer;
 
+    @Autowired
+    private OrderTimeoutQueue orderTimeoutQueue;
+
+    @Autowired
+    private SnowflakeIdGenerator snowflakeIdGenerator;
+
     /**
      * 用户下单
      * @param ordersSubmitDTO
@@ -67,10 +81,8 @@ public class OrderServiceImpl implements OrderService {
             throw new AddressBookBusinessException(MessageConstant.ADDRESS_BOOK_IS_NULL);
         }
 
-        ShoppingCart shoppingCart=new ShoppingCart();
         Long userId = BaseContext.getCurrentId();  //用户id
-        shoppingCart.setUserId(userId);
-        List<ShoppingCart> shoppingCartList = shoppingCartMapper.list(shoppingCart);
+        List<ShoppingCart> shoppingCartList = shoppingCartStore.list(userId);
         if(shoppingCartList==null || shoppingCartList.size()==0){
             throw new ShoppingCartBusinessException(MessageConstant.SHOPPING_CART_IS_NULL);
         }
@@ -78,7 +90,7 @@ public class OrderServiceImpl implements OrderService {
         //1、向订单表插入1条数据
         Orders orders=new Orders();
         BeanUtils.copyProperties(ordersSubmitDTO,orders);
-        orders.setNumber(String.valueOf(System.currentTimeMillis()));  //设置订单号
+        orders.setNumber(String.valueOf(snowflakeIdGenerator.nextId()));  //设置订单号
         orders.setStatus(Orders.PENDING_PAYMENT);  //设置订单状态：待付款
         orders.setUserId(userId);  //设置下单用户id
         orders.setOrderTime(LocalDateTime.now());  //设置下单时间
@@ -98,11 +110,21 @@ public class OrderServiceImpl implements OrderService {
         }
 
         orderDetailMapper.insertBatch(orderDetailList);
-        
-        //3、清空购物车
-        shoppingCartMapper.deleteByUserId(userId);
 
-        //4、封装返回结果
+        //3、累加下单当天的订单总数
+        dailyBusinessStatsMapper.increase(DailyBusinessStats.builder()
+                .date(orders.getOrderTime().toLocalDate())
+                .totalOrders(1)
+                .updateTime(LocalDateTime.now())
+                .build());
+
+        //4、加入超时延迟队列，超时未支付自动取消
+        orderTimeoutQueue.schedule(orders.getId(), orders.getOrderTime().plusMinutes(OrderTimeoutQueue.TIMEOUT_MINUTES));
+
+        //5、清空购物车（redis不参与数据库事务，在事务提交后清空，下单失败时购物车保持不变）
+        shoppingCartStore.clean(userId);
+
+        //6、封装返回结果
         OrderSubmitVO orderSubmitVO = new OrderSubmitVO();
         orderSubmitVO.setId(orders.getId());  //设置订单id
         orderSubmitVO.setOrderNumber(orders.getNumber());  //设置订单号
@@ -132,6 +154,9 @@ public class OrderServiceImpl implements OrderService {
 
         orderMapper.update(orders1);
 
+        //已支付，移出超时延迟队列
+        orderTimeoutQueue.cancel(orders.getId());
+
         //通过websocket向客户端浏览器推送消息（参数：type、orderId、content）
         Map map=new HashMap();
         map.put("type",1);  //1：来单提醒  2：客户催单
@@ -139,7 +164,7 @@ public class OrderServiceImpl implements OrderService {
         map.put("content","订单号："+orderNumber);  //消息内容
 
         String json = JSON.toJSONString(map);
-        webSocketServer.sendToAllClient(json);
+        webSocketServer.sendToGroup(WebSocketConstant.GROUP_MERCHANT,json);  //只推送给商家管理端
     }
 
 
@@ -159,11 +184,13 @@ public class OrderServiceImpl implements OrderService {
 
         Page<Orders> ordersPage=orderMapper.pageQuery(ordersPageQueryDTO);  //分页条件查询
 
+        //批量查询出当前页所有订单的明细，按订单id分组
+        Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(ordersPage.getResult());
+
         List<OrderVO> orderVOS=new ArrayList<>();  //OrderVO集合
-        //查询出订单明细，并封装入OrderVO进行响应
+        //将订单明细封装入OrderVO进行响应
         for (Orders orders : ordersPage) {
-            Long orderId = orders.getId();  //获取订单id
-            List<OrderDetail> orderDetails=orderDetailMapper.getByOrderId(orderId);  //查询订单明细
+            List<OrderDetail> orderDetails=orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>());  //订单明细
 
             //封装入OrderVO
             OrderVO orderVO = new OrderVO();
@@ -227,6 +254,9 @@ public class OrderServiceImpl implements OrderService {
         orders1.setPayStatus(Orders.REFUND);  //更新支付状态：退款
 
         orderMapper.update(orders1);
+
+        //已取消，移出超时延迟队列
+        orderTimeoutQueue.cancel(orders.getId());
     }
 
 
@@ -254,8 +284,13 @@ public class OrderServiceImpl implements OrderService {
             return shoppingCart;
         }).collect(Collectors.toList());
 
-        //将购物车对象批量添加到数据库
-        shoppingCartMapper.insertBatch(shoppingCartList);
+        //将购物车对象逐个加入购物车，已存在的商品累加份数
+        //先保存商品快照（已存在时保留原快照），再修改份数
+        for (ShoppingCart shoppingCart : shoppingCartList) {
+            String field = ShoppingCartStore.field(shoppingCart.getDishId(), shoppingCart.getSetmealId(), shoppingCart.getDishFlavor());
+            shoppingCartStore.putItemIfAbsent(userId, field, shoppingCart);
+            shoppingCartStore.increment(userId, field, shoppingCart.getNumber());
+        }
     }
 
 
@@ -280,13 +315,16 @@ public class OrderServiceImpl implements OrderService {
 
         List<OrderVO> orderVOList=new ArrayList<>();
         if(!CollectionUtils.isEmpty(ordersList)){
+            //批量查询出当前页所有订单的明细，按订单id分组
+            Map<Long, List<OrderDetail>> orderDetailMap = getOrderDetailMap(ordersList);
+
             for (Orders orders : ordersList) {
                 //将共同字段复制到OrderVO
                 OrderVO orderVO = new OrderVO();
                 BeanUtils.copyProperties(orders,orderVO);
 
                 //获取菜品信息字符串，封装进OrderVO中，最后添加到orderVOList中
-                String orderDishes=getOrderDishesStr(orders);
+                String orderDishes=getOrderDishesStr(orderDetailMap.getOrDefault(orders.getId(), new ArrayList<>()));
                 orderVO.setOrderDishes(orderDishes);
                 orderVOList.add(orderVO);
             }
@@ -294,11 +332,8 @@ public class OrderServiceImpl implements OrderService {
         return orderVOList;
     }
 
-    //根据订单id获取菜品信息字符串
-    private String getOrderDishesStr(Orders orders) {
-        //查询订单菜品详情信息（订单中的菜品和数量）
-        List<OrderDetail> orderDetailList = orderDetailMapper.getByOrderId(orders.getId());
-
+    //根据订单明细获取菜品信息字符串
+    private String getOrderDishesStr(List<OrderDetail> orderDetailList) {
         //将每一条订单菜品信息拼接为字符串（格式：宫保鸡丁*3；）
         List<String> orderDishList = orderDetailList.stream().map(x -> {
             String orderDish = x.getName() + "*" + x.getNumber() + ";";
@@ -309,6 +344,18 @@ public class OrderServiceImpl implements OrderService {
         return String.join("", orderDishList);
     }
 
+    //批量查询订单明细，并按订单id分组
+    private Map<Long, List<OrderDetail>> getOrderDetailMap(List<Orders> ordersList) {
+        if(CollectionUtils.isEmpty(ordersList)){
+            return new HashMap<>();
+        }
+
+        List<Long> orderIds = ordersList.stream().map(Orders::getId).collect(Collectors.toList());
+        List<OrderDetail> orderDetailList = orderDetailMapper.getByOrderIds(orderIds);
+
+        return orderDetailList.stream().collect(Collectors.groupingBy(OrderDetail::getOrderId));
+    }
+
 
     /**
      * 各个状态的订单数量统计
@@ -374,8 +421,12 @@ public class OrderServiceImpl implements OrderService {
      * 商家取消订单
      * @param ordersCancelDTO
      */
+    @Transactional
     @Override
     public void cancel(OrdersCancelDTO ordersCancelDTO) {
+        //根据id查询订单
+        Orders ordersDB = orderMapper.getById(ordersCancelDTO.getId());
+
         //管理端取消订单，根据订单id更新订单状态、取消原因、取消时间
         Orders orders = new Orders();
         orders.setId(ordersCancelDTO.getId());  //设置订单id
@@ -384,6 +435,16 @@ public class OrderServiceImpl implements OrderService {
         orders.setCancelTime(LocalDateTime.now());  //设置取消时间
 
         orderMapper.update(orders);
+
+        //已完成的订单被取消，需要从下单当天的有效订单数和营业额中扣除
+        if(ordersDB!=null && Orders.COMPLETED.equals(ordersDB.getStatus())){
+            dailyBusinessStatsMapper.increase(DailyBusinessStats.builder()
+                    .date(ordersDB.getOrderTime().toLocalDate())
+                    .validOrders(-1)
+                    .turnover(ordersDB.getAmount().negate())
+                    .updateTime(LocalDateTime.now())
+                    .build());
+        }
     }
 
 
@@ -414,6 +475,7 @@ public class OrderServiceImpl implements OrderService {
      * 完成订单
      * @param id
      */
+    @Transactional
     @Override
     public void complete(Long id) {
         //根据id查询订单
@@ -431,6 +493,14 @@ public class OrderServiceImpl implements OrderService {
         orders1.setDeliveryTime(LocalDateTime.now());  //设置送达时间
 
         orderMapper.update(orders1);
+
+        //累加下单当天的有效订单数和营业额
+        dailyBusinessStatsMapper.increase(DailyBusinessStats.builder()
+                .date(orders.getOrderTime().toLocalDate())
+                .validOrders(1)
+                .turnover(orders.getAmount())
+                .updateTime(LocalDateTime.now())
+                .build());
     }
 
 
@@ -455,6 +525,6 @@ public class OrderServiceImpl implements OrderService {
         map.put("content","订单号："+orders.getNumber());  //消息内容
 
         String json = JSON.toJSONString(map);
-        webSocketServer.sendToAllClient(json);
+        webSocketServer.sendToGroup(WebSocketConstant.GROUP_MERCHANT,json);  //只推送给商家管理端
     }
 }
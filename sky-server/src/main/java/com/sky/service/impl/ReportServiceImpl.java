@@ -1,28 +1,43 @@
 package com.sky.service.impl;
 
+import com.sky.constant.MessageConstant;
 import com.sky.dto.GoodsSalesDTO;
+import com.sky.dto.OrderStatusCountDTO;
+import com.sky.dto.TurnoverDailyDTO;
+import com.sky.dto.UserDailyDTO;
+import com.sky.entity.DailyBusinessStats;
 import com.sky.entity.Orders;
 import com.sky.entity.User;
+import com.sky.exception.ReportBusinessException;
+import com.sky.mapper.DailyBusinessStatsMapper;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.UserMapper;
 import com.sky.service.ReportService;
 import com.sky.service.WorkSpaceService;
 import com.sky.vo.*;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFRow;
 import org.apache.poi.xssf.usermodel.XSSFSheet;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.InputStream;
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,9 +51,18 @@ public class ReportServiceImpl implements ReportService {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private DailyBusinessStatsMapper dailyBusinessStatsMapper;
+
     @Autowired
     private WorkSpaceService workSpaceService;
 
+    //Excel报表中明细数据的起始行（第8行）
+    private static final int DETAIL_FIRST_ROW = 7;
+
+    //流式导出Excel时内存中保留的行数
+    private static final int EXPORT_ROW_ACCESS_WINDOW = 100;
+
     /**
      * 统计指定时间区间内的营业额数据
      * @param begin
@@ -47,6 +71,7 @@ public class ReportServiceImpl implements ReportService {
      */
     @Override
     public TurnoverReportVO getTurnoverStatistics(LocalDate begin, LocalDate end) {
+        checkDateRange(begin, end);
         //dateList用于存放从begin到end区间的日期
         List<LocalDate> dateList=new ArrayList<>();
 
@@ -57,29 +82,14 @@ public class ReportServiceImpl implements ReportService {
             dateList.add(begin);
         }
 
-        //turnoverList用于存放日期区间每天对应的营业额
-        List<Double> turnoverList=new ArrayList<>();
-        for (LocalDate date : dateList) {
-            //查找date日期对应的营业额，即状态为“已完成”的订单金额合计
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);  //开始时间（00:00:00）
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);  //结束时间（23:59:59）
-
-            //select sum(amount) from orders where order_time > beginTime and order_time < endTime and status =5
-            //用map集合存放参数（beginTime,endTime,status）
-            Map map =new HashMap();
-            map.put("beginTime",beginTime);
-            map.put("endTime",endTime);
-            map.put("status", Orders.COMPLETED);
-
-            Double turnover=orderMapper.sumAmountByMap(map);  //date日期对应的营业额
-
-            //若date日期对应的营业额为空，转化为0.0
-            if(turnover==null){
-                turnover=0.0;
-            }
+        //从每日运营数据汇总表中查询区间内每天的营业额
+        Map<LocalDate, DailyBusinessStats> statsMap = getDailyBusinessStatsMap(dateList.get(0), end);
+
+        //turnoverList用于存放日期区间每天对应的营业额，没有订单的日期营业额为0.0
+        List<Double> turnoverList = dateList.stream()
+                .map(date -> statsMap.containsKey(date) ? statsMap.get(date).getTurnover().doubleValue() : 0.0)
+                .collect(Collectors.toList());
 
-            turnoverList.add(turnover);
-        }
         //将日期集合和营业额集合转化为字符串，各个元素之间逗号隔开
         String dateStr = StringUtils.join(dateList, ",");
         String turnoverStr = StringUtils.join(turnoverList, ",");
@@ -101,6 +111,7 @@ public class ReportServiceImpl implements ReportService {
      */
     @Override
     public UserReportVO getUserStatistics(LocalDate begin, LocalDate end) {
+        checkDateRange(begin, end);
         //存放从begin到end区间的日期
        List<LocalDate> dateList=new ArrayList<>();
         //存放从begin到end区间每天的总用户数量
@@ -114,20 +125,23 @@ public class ReportServiceImpl implements ReportService {
             dateList.add(begin);
         }
 
-        for (LocalDate date : dateList) {
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);  //开始时间（00:00:00）
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);  //结束时间（23:59:59）
-
-            //1、查询每天的总用户数量:select count(id) from user where create_time < endTime
-            //2、查询每天的新增用户数量：select count(id) from user where create_time > beginTime and create_time < endTime
-            Map map =new HashMap();
-            map.put("endTime",endTime);
-            Integer totalUser=userMapper.countByMap(map);  //总用户数量
-            totalUserList.add(totalUser);
+        LocalDateTime beginTime = LocalDateTime.of(dateList.get(0), LocalTime.MIN);  //开始时间（00:00:00）
+
+        //1、查询区间开始前的用户总量，作为累加的初始值:select count(id) from user where create_time < beginTime
+        Map map =new HashMap();
+        map.put("endTime",beginTime);
+        Integer totalUser=userMapper.countByMap(map);
+
+        //2、从每日运营数据汇总表中查询区间内每天的新增用户数量
+        Map<LocalDate, DailyBusinessStats> statsMap = getDailyBusinessStatsMap(dateList.get(0), end);
 
-            map.put("beginTime",beginTime);
-            Integer newUser=userMapper.countByMap(map);  //新增用户数量
+        //3、每天的总用户数量=前一天的总用户数量+当天新增用户数量
+        for (LocalDate date : dateList) {
+            Integer newUser = statsMap.containsKey(date) ? statsMap.get(date).getNewUsers() : 0;  //新增用户数量
             newUserList.add(newUser);
+
+            totalUser += newUser;  //总用户数量
+            totalUserList.add(totalUser);
         }
         //将集合转化为字符串，各个元素之间逗号隔开
         String dateStr = StringUtils.join(dateList, ",");
@@ -152,6 +166,7 @@ public class ReportServiceImpl implements ReportService {
      */
     @Override
     public OrderReportVO getOrderStatistics(LocalDate begin, LocalDate end) {
+        checkDateRange(begin, end);
         //存放从begin到end区间的日期
         List<LocalDate> dateList=new ArrayList<>();
         //存放从begin到end区间的每日订单数
@@ -165,21 +180,13 @@ public class ReportServiceImpl implements ReportService {
             dateList.add(begin);
         }
 
+        //从每日运营数据汇总表中查询区间内每天的订单数和有效订单数
+        Map<LocalDate, DailyBusinessStats> statsMap = getDailyBusinessStatsMap(dateList.get(0), end);
+
         for (LocalDate date : dateList) {
-            LocalDateTime beginTime = LocalDateTime.of(date, LocalTime.MIN);  //开始时间（00:00:00）
-            LocalDateTime endTime = LocalDateTime.of(date, LocalTime.MAX);  //结束时间（23:59:59）
-
-            //1、查询每日订单数:select count(id) from orders where order_time > ? and order_time < ?
-            //2、查询每日有效订单数:select count(id) from orders where order_time > ? and order_time < ? and status = 5
-            Map map=new HashMap();
-            map.put("beginTime",beginTime);
-            map.put("endTime",endTime);
-            Integer orderCount=orderMapper.countByMap(map);  //每日订单数
-            orderCountList.add(orderCount);
-
-            map.put("status",Orders.COMPLETED);
-            Integer validOrderCount=orderMapper.countByMap(map);  //每日有效订单数
-            validOrderCountList.add(validOrderCount);
+            DailyBusinessStats stats = statsMap.get(date);
+            orderCountList.add(stats == null ? 0 : stats.getTotalOrders());  //每日订单数
+            validOrderCountList.add(stats == null ? 0 : stats.getValidOrders());  //每日有效订单数
         }
 
         //计算订单总数、有效订单数(集合遍历累加求和)
@@ -213,6 +220,7 @@ public class ReportServiceImpl implements ReportService {
      */
     @Override
     public SalesTop10ReportVO getSalesTop10(LocalDate begin, LocalDate end) {
+        checkDateRange(begin, end);
         LocalDateTime beginTime = LocalDateTime.of(begin, LocalTime.MIN);
         LocalDateTime endTime = LocalDateTime.of(end, LocalTime.MAX);
         List<GoodsSalesDTO> salesTop10 = orderMapper.getSalesTop10(beginTime, endTime);
@@ -237,29 +245,30 @@ public class ReportServiceImpl implements ReportService {
 
     /**
      * 导出Excel运营数据报表
+     * @param begin
+     * @param end
      * @param response
      */
     @Override
-    public void exportBusinessData(HttpServletResponse response) {
+    public void exportBusinessData(LocalDate begin, LocalDate end, HttpServletResponse response) {
         //1、查询数据库，获取运营数据
-        //获取最近30天内的第一天和最后一天
-        LocalDate beginDay = LocalDate.now().minusDays(30);
-        LocalDate endDay = LocalDate.now().minusDays(1);
-
-        LocalDateTime beginTime = LocalDateTime.of(beginDay, LocalTime.MIN);  //开始时间
-        LocalDateTime endTime = LocalDateTime.of(endDay, LocalTime.MAX);  //结束时间
+        //未指定日期区间时，默认导出最近30天的数据
+        LocalDate endDay = end == null ? LocalDate.now().minusDays(1) : end;
+        LocalDate beginDay = begin == null ? endDay.minusDays(29) : begin;
+        checkDateRange(beginDay, endDay);
 
-        //查询近30天内的运营数据
-        BusinessDataVO businessData = workSpaceService.getBusinessData(beginTime, endTime);
+        //一次性查询区间内每天的运营数据汇总，概览数据和明细数据均由其计算得到
+        Map<LocalDate, DailyBusinessStats> statsMap = getDailyBusinessStatsMap(beginDay, endDay);
+        BusinessDataVO businessData = workSpaceService.getBusinessData(statsMap.values());
 
         //2、通过poi将数据写入excel文件中
         //获取输入流
         InputStream inputStream = this.getClass().getClassLoader().getResourceAsStream("template/运营数据报表模板.xlsx");
         try {
             //基于模板文件创建一个新的excel文件
-            XSSFWorkbook excel = new XSSFWorkbook(inputStream);
+            XSSFWorkbook template = new XSSFWorkbook(inputStream);
             //获取表格文件的sheet页
-            XSSFSheet sheet1 = excel.getSheet("Sheet1");
+            XSSFSheet sheet1 = template.getSheet("Sheet1");
 
             //填充概览数据
             //第2行第2个单元格填充日期
@@ -276,35 +285,146 @@ public class ReportServiceImpl implements ReportService {
             row.getCell(2).setCellValue(businessData.getValidOrderCount());  //第3个单元格填充有效订单数
             row.getCell(4).setCellValue(businessData.getUnitPrice());  //第5个单元格填充平均客单价
 
-            //填充明细数据
-            for(int i=0;i<30;i++){
-                LocalDate date=beginDay.plusDays(i);  //定义日期，根据i动态增加,初始日期为开始日期
+            //记录模板中明细行（从第8行开始）的行高和单元格样式，然后移除模板明细行，改为流式写入
+            XSSFRow detailRow = sheet1.getRow(DETAIL_FIRST_ROW);
+            short detailRowHeight = detailRow.getHeight();
+            CellStyle[] detailStyles = new CellStyle[detailRow.getLastCellNum()];
+            for (int i = detailRow.getFirstCellNum(); i < detailRow.getLastCellNum(); i++) {
+                detailStyles[i] = detailRow.getCell(i).getCellStyle();
+            }
+            for (int i = sheet1.getLastRowNum(); i >= DETAIL_FIRST_ROW; i--) {
+                sheet1.removeRow(sheet1.getRow(i));
+            }
 
-                //查询当天运营数据
-                LocalDateTime dateBegin = LocalDateTime.of(date, LocalTime.MIN);
-                LocalDateTime dateEnd = LocalDateTime.of(date, LocalTime.MAX);
-                BusinessDataVO businessData1 = workSpaceService.getBusinessData(dateBegin, dateEnd);
+            //基于模板创建流式excel文件，内存中只保留最近的若干行，其余行写入临时文件
+            SXSSFWorkbook excel = new SXSSFWorkbook(template, EXPORT_ROW_ACCESS_WINDOW);
+            SXSSFSheet sheet = excel.getSheet("Sheet1");
+
+            //填充明细数据
+            int rowIndex = DETAIL_FIRST_ROW;
+            for (LocalDate date = beginDay; !date.isAfter(endDay); date = date.plusDays(1)) {
+                //当天运营数据
+                DailyBusinessStats stats = statsMap.get(date);
+                BusinessDataVO businessData1 = workSpaceService.getBusinessData(stats == null ? Collections.emptyList() : Collections.singletonList(stats));
 
                 //填充当天明细数据
-                row=sheet1.getRow(7+i);  //动态获取行数
-                row.getCell(1).setCellValue(date.toString());  //日期
-                row.getCell(2).setCellValue(businessData1.getTurnover());  //营业额
-                row.getCell(3).setCellValue(businessData1.getValidOrderCount());  //有效订单
-                row.getCell(4).setCellValue(businessData1.getOrderCompletionRate());  //订单完成率
-                row.getCell(5).setCellValue(businessData1.getUnitPrice());  //平均客单价
-                row.getCell(6).setCellValue(businessData1.getNewUsers());  //新增用户数
+                SXSSFRow sxssfRow = sheet.createRow(rowIndex++);
+                sxssfRow.setHeight(detailRowHeight);
+                for (int i = 0; i < detailStyles.length; i++) {
+                    if (detailStyles[i] != null) {
+                        sxssfRow.createCell(i).setCellStyle(detailStyles[i]);
+                    }
+                }
+                sxssfRow.getCell(1).setCellValue(date.toString());  //日期
+                sxssfRow.getCell(2).setCellValue(businessData1.getTurnover());  //营业额
+                sxssfRow.getCell(3).setCellValue(businessData1.getValidOrderCount());  //有效订单
+                sxssfRow.getCell(4).setCellValue(businessData1.getOrderCompletionRate());  //订单完成率
+                sxssfRow.getCell(5).setCellValue(businessData1.getUnitPrice());  //平均客单价
+                sxssfRow.getCell(6).setCellValue(businessData1.getNewUsers());  //新增用户数
             }
 
             //3、通过输出流将excel文件下载到客户端浏览器
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
             ServletOutputStream outputStream = response.getOutputStream();
             excel.write(outputStream);
 
-            //关闭资源
+            //关闭资源，并删除流式写入产生的临时文件
             outputStream.close();
+            excel.dispose();
             excel.close();
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+
+    /**
+     * 根据订单表和用户表的原始数据重建指定日期区间内的每日运营数据汇总
+     * 只重建今天之前的日期：今天的汇总仍在由下单、完成、取消等操作增量更新，重新统计后覆盖写入会丢失统计期间提交的增量
+     * @param begin
+     * @param end 晚于昨天时按昨天处理
+     */
+    @Transactional
+    @Override
+    public void rebuildBusinessStats(LocalDate begin, LocalDate end) {
+        checkDateRange(begin, end);
+
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        if(end.isAfter(yesterday)){
+            end = yesterday;
+        }
+        if(begin.isAfter(end)){
+            return;
+        }
+
+        Map map=new HashMap();
+        map.put("beginTime",LocalDateTime.of(begin, LocalTime.MIN));  //开始时间（00:00:00）
+        map.put("endTime",LocalDateTime.of(end, LocalTime.MAX));  //结束时间（23:59:59）
+
+        //1、按天和订单状态分组查询每日订单数，订单总数为各状态之和，有效订单数为“已完成”状态的订单数
+        Map<LocalDate, Integer> orderCountMap=new HashMap<>();
+        Map<LocalDate, Integer> validOrderCountMap=new HashMap<>();
+        for (OrderStatusCountDTO statusCount : orderMapper.countGroupByDateAndStatus(map)) {
+            orderCountMap.merge(statusCount.getDate(), statusCount.getOrderCount(), Integer::sum);
+            if(Orders.COMPLETED.equals(statusCount.getStatus())){
+                validOrderCountMap.put(statusCount.getDate(), statusCount.getOrderCount());
+            }
+        }
+
+        //2、按天分组查询每日新增用户数
+        Map<LocalDate, Integer> newUserMap = userMapper.countGroupByDate(map).stream()
+                .collect(Collectors.toMap(UserDailyDTO::getDate, UserDailyDTO::getNewUsers));
+
+        //3、按天分组查询每日营业额
+        map.put("status", Orders.COMPLETED);
+        Map<LocalDate, Double> turnoverMap = orderMapper.sumAmountGroupByDate(map).stream()
+                .collect(Collectors.toMap(TurnoverDailyDTO::getDate, TurnoverDailyDTO::getTurnover));
+
+        //4、区间内每一天都生成一条汇总记录（没有数据的日期记为0），覆盖写入汇总表
+        List<DailyBusinessStats> statsList=new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (LocalDate date = begin; !date.isAfter(end); date = date.plusDays(1)) {
+            statsList.add(DailyBusinessStats.builder()
+                    .date(date)
+                    .turnover(BigDecimal.valueOf(turnoverMap.getOrDefault(date, 0.0)))
+                    .totalOrders(orderCountMap.getOrDefault(date, 0))
+                    .validOrders(validOrderCountMap.getOrDefault(date, 0))
+                    .newUsers(newUserMap.getOrDefault(date, 0))
+                    .updateTime(now)
+                    .build());
+        }
+        if(!statsList.isEmpty()){
+            dailyBusinessStatsMapper.replaceBatch(statsList);
+        }
+    }
+
+
+    /**
+     * 查询指定日期区间内的每日运营数据汇总，返回“日期-汇总数据”的映射
+     * @param begin
+     * @param end
+     * @return
+     */
+    private Map<LocalDate, DailyBusinessStats> getDailyBusinessStatsMap(LocalDate begin, LocalDate end) {
+        return dailyBusinessStatsMapper.list(begin, end).stream()
+                .collect(Collectors.toMap(DailyBusinessStats::getDate, stats -> stats));
+    }
+
+
+    /**
+     * 校验统计日期区间：开始和结束日期不能为空，开始日期不能晚于结束日期，区间不能超过MAX_REPORT_DAYS天
+     * @param begin
+     * @param end
+     */
+    private void checkDateRange(LocalDate begin, LocalDate end) {
+        if(begin==null || end==null){
+            throw new ReportBusinessException(MessageConstant.REPORT_DATE_IS_NULL);
+        }
+        if(begin.isAfter(end)){
+            throw new ReportBusinessException(MessageConstant.REPORT_DATE_REVERSED);
+        }
+        if(ChronoUnit.DAYS.between(begin, end) >= MAX_REPORT_DAYS){
+            throw new ReportBusinessException(MessageConstant.REPORT_DATE_TOO_LONG);
+        }
+    }
 }
@@ -2,6 +2,7 @@ package com.sky.service.impl;
 
 import com.github.pagehelper.Page;
 import com.github.pagehelper.PageHelper;
+import com.sky.cache.ProductSnapshotIndex;
 import com.sky.constant.MessageConstant;
 import com.sky.constant.StatusConstant;
 import com.sky.dto.SetmealDTO;
@@ -16,6 +17,7 @@ import com.sky.mapper.SetmealDishMapper;
 import com.sky.mapper.SetmealMapper;
 import com.sky.result.PageResult;
 import com.sky.service.SetmealService;
+import com.sky.utils.ImageUtil;
 import com.sky.vo.DishItemVO;
 import com.sky.vo.SetmealVO;
 import org.springframework.beans.BeanUtils;
@@ -36,6 +38,9 @@ public class SetmealServiceImpl implements SetmealService {
     @Autowired
     private DishMapper dishMapper;
 
+    @Autowired
+    private ProductSnapshotIndex productSnapshotIndex;
+
     /**
      * 新增套餐，同时需要保存套餐和菜品的关联关系
      * @param setmealDTO
@@ -70,6 +75,7 @@ public class SetmealServiceImpl implements SetmealService {
     public PageResult pageQuery(SetmealPageQueryDTO setmealPageQueryDTO) {
         PageHelper.startPage(setmealPageQueryDTO.getPage(),setmealPageQueryDTO.getPageSize());
         Page<SetmealVO> page=setmealDishMapper.pageQuery(setmealPageQueryDTO);
+        page.getResult().forEach(setmealVO -> setmealVO.setImageVariants(ImageUtil.variantUrls(setmealVO.getImage())));
         return new PageResult(page.getTotal(),page.getResult());
     }
 
@@ -94,6 +100,8 @@ public class SetmealServiceImpl implements SetmealService {
             setmealMapper.deleteById(id);  //套餐表
 
             setmealDishMapper.deleteBySetmealId(id); //套餐菜品关系表
+
+            productSnapshotIndex.evictSetmeal(id);  //失效加入购物车用的套餐快照
         }
     }
 
@@ -115,6 +123,7 @@ public class SetmealServiceImpl implements SetmealService {
         SetmealVO setmealVO=new SetmealVO();
         BeanUtils.copyProperties(setmeal,setmealVO);
         setmealVO.setSetmealDishes(setmealDishes);
+        setmealVO.setImageVariants(ImageUtil.variantUrls(setmeal.getImage()));
 
         return setmealVO;
     }
@@ -131,6 +140,7 @@ public class SetmealServiceImpl implements SetmealService {
         Setmeal setmeal=new Setmeal();
         BeanUtils.copyProperties(setmealDTO,setmeal);
         setmealMapper.update(setmeal);
+        productSnapshotIndex.evictSetmeal(setmeal.getId());  //失效加入购物车用的套餐快照
 
         //修改套餐和菜品的关联关系
         //1、删除原有套餐和菜品的关联关系
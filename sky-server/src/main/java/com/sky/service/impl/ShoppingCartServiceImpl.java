@@ -1,14 +1,14 @@
 package com.sky.service.impl;
 
+import com.sky.cache.ProductSnapshot;
+import com.sky.cache.ProductSnapshotIndex;
+import com.sky.constant.MessageConstant;
 import com.sky.context.BaseContext;
 import com.sky.dto.ShoppingCartDTO;
-import com.sky.entity.Dish;
-import com.sky.entity.Setmeal;
 import com.sky.entity.ShoppingCart;
-import com.sky.mapper.DishMapper;
-import com.sky.mapper.SetmealMapper;
-import com.sky.mapper.ShoppingCartMapper;
+import com.sky.exception.ShoppingCartBusinessException;
 import com.sky.service.ShoppingCartService;
+import com.sky.store.ShoppingCartStore;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -20,11 +20,9 @@ import java.util.List;
 public class ShoppingCartServiceImpl implements ShoppingCartService {
 
     @Autowired
-    private ShoppingCartMapper shoppingCartMapper;
+    private ShoppingCartStore shoppingCartStore;
     @Autowired
-    private DishMapper dishMapper;
-    @Autowired
-    private SetmealMapper setmealMapper;
+    private ProductSnapshotIndex productSnapshotIndex;
 
     /**
      * 添加购物车
@@ -32,44 +30,32 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
      */
     @Override
     public void add(ShoppingCartDTO shoppingCartDTO) {
-        //判断当前加入到购物车的商品是否已存在
+        Long userId = BaseContext.getCurrentId();  //获取当前用户id
+        Long dishId = shoppingCartDTO.getDishId();
+        Long setmealId = shoppingCartDTO.getSetmealId();
+        String field = ShoppingCartStore.field(dishId, setmealId, shoppingCartDTO.getDishFlavor());
+
+        //判断添加的数据是菜品还是套餐
+        //从商品快照索引中查询，不再每次查询数据库
+        //先确认商品存在再修改份数，避免商品不存在时份数已加1
+        ProductSnapshot product = dishId!=null
+                ? productSnapshotIndex.getDish(dishId)  //添加数据为菜品
+                : productSnapshotIndex.getSetmeal(setmealId);  //添加数据为套餐
+        if(product==null){
+            throw new ShoppingCartBusinessException(MessageConstant.PRODUCT_NOT_FOUND);
+        }
+
+        //先保存商品快照（已在购物车中的商品保留原快照），再原子地把份数加1
+        //份数可见时快照一定已存在，回写不会漏掉新加入的商品
         ShoppingCart shoppingCart=new ShoppingCart();
         BeanUtils.copyProperties(shoppingCartDTO,shoppingCart);
-        Long userId = BaseContext.getCurrentId();  //获取当前用户id
         shoppingCart.setUserId(userId);
-
-        List<ShoppingCart> list=shoppingCartMapper.list(shoppingCart);  //根据动态条件查找
-
-        if(list!=null && list.size()>0){
-            //1、若存在，只需将数量加1
-            ShoppingCart cart = list.get(0); //实际上这个集合只会有一条数据
-            cart.setNumber(cart.getNumber()+1);
-
-            shoppingCartMapper.updateNumberById(cart);
-        }else{
-            //2、若不存在，给购物车插入一条新数据
-            //判断添加的数据是菜品还是套餐
-            Long dishId = shoppingCartDTO.getDishId();
-            Long setmealId = shoppingCartDTO.getSetmealId();
-
-            if(dishId!=null){
-                //添加数据为菜品
-                Dish dish = dishMapper.getById(dishId);
-                shoppingCart.setName(dish.getName());
-                shoppingCart.setImage(dish.getImage());
-                shoppingCart.setAmount(dish.getPrice());
-            }else{
-                //添加数据为套餐
-                Setmeal setmeal = setmealMapper.getById(setmealId);
-                shoppingCart.setName(setmeal.getName());
-                shoppingCart.setImage(setmeal.getImage());
-                shoppingCart.setAmount(setmeal.getPrice());
-            }
-            shoppingCart.setNumber(1);
-            shoppingCart.setCreateTime(LocalDateTime.now());
-            //插入数据
-            shoppingCartMapper.insert(shoppingCart);
-        }
+        shoppingCart.setName(product.getName());
+        shoppingCart.setImage(product.getImage());
+        shoppingCart.setAmount(product.getPrice());
+        shoppingCart.setCreateTime(LocalDateTime.now());
+        shoppingCartStore.putItemIfAbsent(userId, field, shoppingCart);
+        shoppingCartStore.increment(userId, field, 1);
     }
 
 
@@ -81,11 +67,8 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
     public List<ShoppingCart> list() {
         //获取当前用户id
         Long userId = BaseContext.getCurrentId();
-        ShoppingCart shoppingCart=new ShoppingCart();
-        shoppingCart.setUserId(userId);
 
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
-        return list;
+        return shoppingCartStore.list(userId);
     }
 
 
@@ -97,7 +80,7 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
         //获取当前用户id
         Long userId = BaseContext.getCurrentId();
 
-        shoppingCartMapper.deleteByUserId(userId);
+        shoppingCartStore.clean(userId);
     }
 
 
@@ -107,24 +90,8 @@ public class ShoppingCartServiceImpl implements ShoppingCartService {
      */
     @Override
     public void sub(ShoppingCartDTO shoppingCartDTO) {
-        ShoppingCart shoppingCart=new ShoppingCart();
-        BeanUtils.copyProperties(shoppingCartDTO,shoppingCart);
-        shoppingCart.setUserId(BaseContext.getCurrentId());
-
-        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
-
-        if(list!=null && list.size()>0){
-            ShoppingCart cart = list.get(0);
-            Integer number = cart.getNumber();
-
-            if(number==1){
-                //当前商品在购物车中的份数为1，直接删除当前记录
-                shoppingCartMapper.deleteById(cart.getId());
-            }else{
-                //当前商品在购物车中的份数不为1，修改份数即可
-                cart.setNumber(cart.getNumber()-1);
-                shoppingCartMapper.updateNumberById(cart);
-            }
-        }
+        //份数原子减1，减到0时自动删除该商品
+        String field = ShoppingCartStore.field(shoppingCartDTO.getDishId(), shoppingCartDTO.getSetmealId(), shoppingCartDTO.getDishFlavor());
+        shoppingCartStore.increment(BaseContext.getCurrentId(), field, -1);
     }
 }
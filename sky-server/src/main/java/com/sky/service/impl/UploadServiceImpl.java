@@ -0,0 +1,136 @@
+package com.sky.service.impl;
+
+import com.sky.service.UploadService;
+import com.sky.storage.FileStorage;
+import com.sky.utils.ImageUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+@Service
+@Slf4j
+public class UploadServiceImpl implements UploadService {
+
+    @Autowired
+    private FileStorage fileStorage;
+
+    @Autowired
+    private ExecutorService uploadExecutor;
+
+    /**
+     * 异步上传文件，在上传线程池中把文件内容以流的方式写入存储
+     * 文件按内容的sha256命名，相同内容重复上传时直接返回已有文件（不论后缀），不再解码图片；
+     * 图片同时生成缩略图，生成失败时只上传原图
+     * 上传线程池已满时直接返回以异常结束的future，不占用请求线程上传
+     * @param file
+     * @return 文件访问路径
+     */
+    public CompletableFuture<String> upload(MultipartFile file) {
+        //截取原始文件名的后缀（.jpg  .png等）
+        String originalFilename = file.getOriginalFilename();  //原始文件名称
+        int index = originalFilename == null ? -1 : originalFilename.lastIndexOf(".");  //最后一个“.”的索引
+        String extension = index < 0 ? "" : originalFilename.substring(index).toLowerCase(Locale.ROOT); //截取字符串(即后缀)
+
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return upload(file, extension);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, uploadExecutor);
+        } catch (RejectedExecutionException e) {
+            log.warn("上传线程池已满，拒绝上传：{}", originalFilename);
+            CompletableFuture<String> future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+            return future;
+        }
+    }
+
+    private String upload(MultipartFile file, String extension) throws IOException {
+        //上传的文件已由容器保存在临时文件中，可以多次读取
+        String hash;
+        try (InputStream inputStream = file.getInputStream()) {
+            hash = DigestUtils.sha256Hex(inputStream);
+        }
+
+        //只按内容哈希查找已有的原图，在解码图片之前完成；原图最后上传，原图存在说明衍生图片也已上传
+        for (String name : fileStorage.list(hash)) {
+            if (ImageUtil.isOriginalName(hash, name)) {
+                log.info("文件已存在，跳过上传：{}", name);
+                return fileStorage.getUrl(name);
+            }
+        }
+
+        //先在内存中生成缩略图，原图名称中记录生成成功的格式，前端只会拿到实际存在的缩略图
+        Map<String, List<byte[]>> variants = createVariants(file);
+        String objectName = ImageUtil.originalName(hash, ImageUtil.THUMBNAIL_SIZES, variants.keySet(), extension);
+
+        for (Map.Entry<String, List<byte[]>> entry : variants.entrySet()) {
+            String format = entry.getKey();
+            for (int i = 0; i < ImageUtil.THUMBNAIL_SIZES.length; i++) {
+                byte[] bytes = entry.getValue().get(i);
+                fileStorage.upload(new ByteArrayInputStream(bytes), bytes.length,
+                        ImageUtil.variantName(hash, ImageUtil.THUMBNAIL_SIZES[i], format), "image/" + ("jpg".equals(format) ? "jpeg" : format));
+            }
+        }
+
+        try (InputStream inputStream = file.getInputStream()) {
+            return fileStorage.upload(inputStream, file.getSize(), objectName, file.getContentType());
+        }
+    }
+
+    /**
+     * 生成各格式、各尺寸的缩略图
+     * 不是图片或无法解码（如ImageIO不支持的CMYK的JPEG）时不生成，某种格式编码失败时跳过该格式，原图照常上传
+     * @param file
+     * @return key为格式，value为按THUMBNAIL_SIZES顺序排列的各尺寸缩略图
+     */
+    private Map<String, List<byte[]>> createVariants(MultipartFile file) {
+        Map<String, List<byte[]>> variants = new LinkedHashMap<>();
+        int maxSize = ImageUtil.THUMBNAIL_SIZES[ImageUtil.THUMBNAIL_SIZES.length - 1];
+        BufferedImage image;
+        try (InputStream inputStream = file.getInputStream()) {
+            image = ImageUtil.read(inputStream, maxSize);
+        } catch (IOException | RuntimeException e) {
+            log.warn("图片解码失败，不生成缩略图：{}", file.getOriginalFilename(), e);
+            return variants;
+        }
+        if (image == null) {
+            return variants;
+        }
+
+        List<BufferedImage> thumbnails = new ArrayList<>();
+        for (int size : ImageUtil.THUMBNAIL_SIZES) {
+            thumbnails.add(ImageUtil.resize(image, size));
+        }
+        for (String format : ImageUtil.variantFormats()) {
+            try {
+                List<byte[]> encoded = new ArrayList<>();
+                for (BufferedImage thumbnail : thumbnails) {
+                    encoded.add(ImageUtil.encode(thumbnail, format));
+                }
+                variants.put(format, encoded);
+            } catch (IOException | RuntimeException e) {
+                log.warn("缩略图编码失败，跳过{}格式：{}", format, file.getOriginalFilename(), e);
+            }
+        }
+        return variants;
+    }
+}
@@ -2,21 +2,29 @@ package com.sky.service.impl;
 
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONObject;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.sky.constant.MessageConstant;
 import com.sky.dto.UserLoginDTO;
+import com.sky.entity.DailyBusinessStats;
 import com.sky.entity.User;
 import com.sky.exception.LoginFailedException;
-import com.sky.exception.UserNotLoginException;
+import com.sky.mapper.DailyBusinessStatsMapper;
 import com.sky.mapper.UserMapper;
 import com.sky.properties.WeChatProperties;
 import com.sky.service.UserService;
 import com.sky.utils.HttpClientUtil;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class UserServiceImpl implements UserService {
@@ -29,8 +37,27 @@ public class UserServiceImpl implements UserService {
     @Autowired
     private UserMapper userMapper;
 
+    @Autowired
+    private DailyBusinessStatsMapper dailyBusinessStatsMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    //授权码到openid的映射：相同授权码的并发请求只调用一次微信接口，完成后短时间内的重试直接复用结果
+    private final AsyncCache<String, String> openidCache = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(5, TimeUnit.MINUTES)
+            .buildAsync();
+
+    //openid到用户的映射，已登录过的用户不再查询数据库
+    private final Cache<String, User> userCache = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .build();
+
     /**
      * 微信登录
+     * 调用微信接口不在事务中进行，避免等待微信响应时占用数据库连接；只有注册新用户在事务中执行
      * @param userLoginDTO
      * @return
      */
@@ -44,35 +71,80 @@ public class UserServiceImpl implements UserService {
             throw new LoginFailedException(MessageConstant.LOGIN_FAILED);
         }
 
-        //3、判断该用户是否为新用户，若为新用户则自动完成注册
-        User user=userMapper.getByOpenid(openid);
+        //3、先查询缓存，再查询数据库
+        User user=userCache.getIfPresent(openid);
+        if(user!=null){
+            return user;
+        }
+        user=userMapper.getByOpenid(openid);
+
+        //4、若为新用户则自动完成注册
         if(user==null){
-            user=User.builder()
-                    .openid(openid)
-                    .createTime(LocalDateTime.now())
-                    .build();
-            userMapper.insert(user);
+            user=transactionTemplate.execute(status -> register(openid));
         }
+
+        //注册事务提交后再放入缓存，事务回滚时不会缓存不存在的用户
+        userCache.put(openid, user);
         return user;
     }
 
+    /**
+     * 注册新用户，openid已存在时不插入，避免并发登录重复注册
+     * @param openid
+     * @return
+     */
+    private User register(String openid){
+        User user=User.builder()
+                .openid(openid)
+                .createTime(LocalDateTime.now())
+                .build();
+        if(userMapper.insertIgnore(user)>0){
+            //累加注册当天的新增用户数
+            dailyBusinessStatsMapper.increase(DailyBusinessStats.builder()
+                    .date(user.getCreateTime().toLocalDate())
+                    .newUsers(1)
+                    .updateTime(LocalDateTime.now())
+                    .build());
+            return user;
+        }
+        //其他请求已完成注册，加锁读取以确保读到最新提交的数据
+        return userMapper.getByOpenidForUpdate(openid);
+    }
+
 
     /**
      * 根据授权码调用微信接口服务，获取当前用户的openid
+     * 相同授权码同时只有一个请求调用微信接口，其他请求等待并共用其结果
      * @param code
      * @return
      */
     private String getOpenid(String code){
+        if(code==null){
+            return null;
+        }
+        try {
+            return openidCache.get(code, (key, executor) -> requestOpenid(key)).join();
+        } catch (CompletionException e) {
+            throw new LoginFailedException(MessageConstant.LOGIN_FAILED);
+        }
+    }
+
+    /**
+     * 调用微信接口服务获取openid
+     * @param code
+     * @return 获取失败时结果为null，不会被缓存
+     */
+    private CompletableFuture<String> requestOpenid(String code){
         Map<String, String> map=new HashMap<>();
         map.put("appid",weChatProperties.getAppid());
         map.put("secret",weChatProperties.getSecret());
         map.put("js_code", code);
         map.put("grant_type","authorization_code");
-        String json = HttpClientUtil.doGet(WX_LOGIN, map);  //返回json数据包
-        //解析出openid
-        JSONObject jsonObject = JSON.parseObject(json);
-        String openid = jsonObject.getString("openid");
-
-        return openid;
+        return HttpClientUtil.doGetAsync(WX_LOGIN, map)  //返回json数据包
+                .thenApply(json -> {
+                    //解析出openid
+                    JSONObject jsonObject = JSON.parseObject(json);
+                    return jsonObject == null ? null : jsonObject.getString("openid");
+                });
     }
 }
@@ -1,11 +1,13 @@
 package com.sky.service.impl;
 
 import com.sky.constant.StatusConstant;
+import com.sky.dto.OrderStatusCountDTO;
+import com.sky.entity.DailyBusinessStats;
 import com.sky.entity.Orders;
+import com.sky.mapper.DailyBusinessStatsMapper;
 import com.sky.mapper.DishMapper;
 import com.sky.mapper.OrderMapper;
 import com.sky.mapper.SetmealMapper;
-import com.sky.mapper.UserMapper;
 import com.sky.service.WorkSpaceService;
 import com.sky.vo.BusinessDataVO;
 import com.sky.vo.DishOverViewVO;
@@ -14,9 +16,13 @@ import com.sky.vo.SetmealOverViewVO;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class WorkSpaceServiceImpl implements WorkSpaceService {
@@ -24,7 +30,7 @@ public class WorkSpaceServiceImpl implements WorkSpaceService {
     private OrderMapper orderMapper;
 
     @Autowired
-    private UserMapper userMapper;
+    private DailyBusinessStatsMapper dailyBusinessStatsMapper;
 
     @Autowired
     private DishMapper dishMapper;
@@ -41,20 +47,28 @@ public class WorkSpaceServiceImpl implements WorkSpaceService {
     @Override
     public BusinessDataVO getBusinessData(LocalDateTime begin, LocalDateTime end) {
         //今日运营数据包括：营业额、有效订单、订单完成率、平均客单价、新增用户量
-        Map map=new HashMap();
-        map.put("beginTime",begin);
-        map.put("endTime",end);
+        //从每日运营数据汇总表中查询区间内每天的运营数据（按天统计，begin和end只取日期部分）
+        List<DailyBusinessStats> statsList = dailyBusinessStatsMapper.list(begin.toLocalDate(), end.toLocalDate());
+
+        return getBusinessData(statsList);
+    }
 
-        //查询总订单数
-        Integer totalOrderCount = orderMapper.countByMap(map);
+    /**
+     * 根据每日运营数据汇总计算营业额、有效订单、订单完成率、平均客单价、新增用户量
+     * @param statsList
+     * @return
+     */
+    @Override
+    public BusinessDataVO getBusinessData(Collection<DailyBusinessStats> statsList) {
+        //总订单数
+        Integer totalOrderCount = statsList.stream().mapToInt(DailyBusinessStats::getTotalOrders).sum();
 
-        //查询有效订单数(状态为已完成的订单)
-        map.put("status", Orders.COMPLETED);
-        Integer validOrderCount= orderMapper.countByMap(map);
+        //有效订单数(状态为已完成的订单)
+        Integer validOrderCount = statsList.stream().mapToInt(DailyBusinessStats::getValidOrders).sum();
 
-        //统计当日营业额(状态为已完成的订单的总金额)
-        Double turnover = orderMapper.sumAmountByMap(map);
-        turnover= turnover==null?0.0:turnover;  //若为空，则转化为0.0
+        //营业额(状态为已完成的订单的总金额)
+        Double turnover = statsList.stream().map(DailyBusinessStats::getTurnover)
+                .reduce(BigDecimal.ZERO, BigDecimal::add).doubleValue();
 
         //计算订单完成率和平均客单价
         Double orderCompletionRate=0.0;
@@ -64,8 +78,8 @@ public class WorkSpaceServiceImpl implements WorkSpaceService {
             unitPrice=turnover/validOrderCount;  //平均客单价=营业额/有效订单数
         }
 
-        //统计新增用户量
-        Integer newUsers = userMapper.countByMap(map);
+        //新增用户量
+        Integer newUsers = statsList.stream().mapToInt(DailyBusinessStats::getNewUsers).sum();
 
         //封装返回结果
         return BusinessDataVO.builder()
@@ -88,20 +102,19 @@ public class WorkSpaceServiceImpl implements WorkSpaceService {
         Map map=new HashMap();
         map.put("beginTime",begin);
 
+        //按订单状态分组查询订单数量
+        Map<Integer, Integer> statusCountMap = getStatusCountMap(map);
+
         //全部订单
-        Integer allOrders = orderMapper.countByMap(map);
+        Integer allOrders = statusCountMap.values().stream().reduce(0, Integer::sum);
         //待接单
-        map.put("status",Orders.TO_BE_CONFIRMED);
-        Integer waitingOrders = orderMapper.countByMap(map);
+        Integer waitingOrders = statusCountMap.getOrDefault(Orders.TO_BE_CONFIRMED, 0);
         //待派送
-        map.put("status",Orders.CONFIRMED);
-        Integer deliveredOrders = orderMapper.countByMap(map);
+        Integer deliveredOrders = statusCountMap.getOrDefault(Orders.CONFIRMED, 0);
         //已完成
-        map.put("status",Orders.COMPLETED);
-        Integer completedOrders = orderMapper.countByMap(map);
+        Integer completedOrders = statusCountMap.getOrDefault(Orders.COMPLETED, 0);
         //已取消
-        map.put("status",Orders.CANCELLED);
-        Integer cancelledOrders = orderMapper.countByMap(map);
+        Integer cancelledOrders = statusCountMap.getOrDefault(Orders.CANCELLED, 0);
 
         //封装返回结果
         return OrderOverViewVO.builder()
@@ -160,4 +173,15 @@ public class WorkSpaceServiceImpl implements WorkSpaceService {
                 .discontinued(discontinued)
                 .build();
     }
+
+
+    /**
+     * 根据动态条件按订单状态分组统计订单数量，返回“订单状态-订单数量”的映射
+     * @param map
+     * @return
+     */
+    private Map<Integer, Integer> getStatusCountMap(Map map) {
+        return orderMapper.countGroupByStatus(map).stream()
+                .collect(Collectors.toMap(OrderStatusCountDTO::getStatus, OrderStatusCountDTO::getOrderCount));
+    }
 }
@@ -0,0 +1,284 @@
+package com.sky.store;
+
+import com.sky.entity.ShoppingCart;
+import com.sky.mapper.ShoppingCartMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 购物车存储：以redis为主存储，异步回写到数据库
+ * 每个用户使用两个hash：cart:{userId}保存商品份数，cart_item:{userId}保存商品快照（名称、图片、金额等），
+ * hash的field为商品标识（菜品id+口味或套餐id）。
+ * 发生修改的用户id记入cart_dirty集合，由定时任务回写到shopping_cart表。
+ * 份数hash中的“#”字段标记该用户的购物车已从数据库载入，不存在时先从数据库载入。
+ * 同一用户的两个key使用相同的hash tag（{userId}），在redis集群中位于同一个槽，lua脚本只操作这两个key；
+ * cart_dirty是全局key，在脚本执行成功后单独写入
+ */
+@Component
+@Slf4j
+public class ShoppingCartStore {
+
+    //商品份数hash的key前缀
+    private static final String NUMBER_KEY_PREFIX = "cart:";
+
+    //商品快照hash的key前缀
+    private static final String ITEM_KEY_PREFIX = "cart_item:";
+
+    //待回写数据库的用户id集合
+    private static final String DIRTY_KEY = "cart_dirty";
+
+    //标记购物车已载入的字段
+    private static final String LOADED_FIELD = "#";
+
+    //购物车无操作后在redis中保留的时间（毫秒）
+    private static final long TTL_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    //修改商品份数：购物车未载入时返回nil；份数减到0时删除该商品
+    private static final RedisScript<Long> INCREMENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 then return nil end " +
+            "local n = redis.call('hincrby', KEYS[1], ARGV[1], ARGV[2]) " +
+            "if n <= 0 then redis.call('hdel', KEYS[1], ARGV[1]) redis.call('hdel', KEYS[2], ARGV[1]) end " +
+            "redis.call('pexpire', KEYS[1], ARGV[3]) " +
+            "redis.call('pexpire', KEYS[2], ARGV[3]) " +
+            "return n",
+            Long.class);
+
+    //从数据库载入商品份数：购物车已载入时不做处理，避免覆盖并发的修改
+    private static final RedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then return 0 end " +
+            "redis.call('hset', KEYS[1], '" + LOADED_FIELD + "', 0) " +
+            "for i = 2, #ARGV, 2 do redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('pexpire', KEYS[1], ARGV[1]) " +
+            "return 1",
+            Long.class);
+
+    //清空购物车：保留载入标记，避免回写前从数据库重新载入已清空的商品
+    private static final RedisScript<Long> CLEAN_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('del', KEYS[1], KEYS[2]) " +
+            "redis.call('hset', KEYS[1], '" + LOADED_FIELD + "', 0) " +
+            "redis.call('pexpire', KEYS[1], ARGV[1]) " +
+            "return 1",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisTemplate redisTemplate;
+
+    @Autowired
+    private ShoppingCartMapper shoppingCartMapper;
+
+    /**
+     * 构造购物车中商品的标识
+     * @param dishId
+     * @param setmealId
+     * @param dishFlavor
+     * @return
+     */
+    public static String field(Long dishId, Long setmealId, String dishFlavor) {
+        if (dishId != null) {
+            return "d:" + dishId + ":" + (dishFlavor == null ? "" : dishFlavor);
+        }
+        return "s:" + setmealId;
+    }
+
+    /**
+     * 原子地修改商品份数
+     * @param userId
+     * @param field 商品标识
+     * @param delta 增加的份数，为负数时减少
+     * @return 修改后的份数，小于等于0表示商品已从购物车删除
+     */
+    public long increment(Long userId, String field, long delta) {
+        Long number = executeIncrement(userId, field, delta);
+        if (number == null) {
+            //购物车未载入，先从数据库载入再修改
+            load(userId);
+            number = executeIncrement(userId, field, delta);
+        }
+        return number == null ? 0 : number;
+    }
+
+    /**
+     * 保存商品快照，已存在时保留原快照（HSETNX）
+     * 加入商品时须在修改份数之前调用，保证份数可见、用户被标记待回写时快照已存在；
+     * 之后修改份数失败时只留下没有份数的快照，查询和回写都会忽略
+     * @param userId
+     * @param field 商品标识
+     * @param item
+     */
+    public void putItemIfAbsent(Long userId, String field, ShoppingCart item) {
+        String itemKey = itemKey(userId);
+        if (Boolean.TRUE.equals(redisTemplate.opsForHash().putIfAbsent(itemKey, field, item))) {
+            redisTemplate.expire(itemKey, TTL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 查询用户的购物车
+     * @param userId
+     * @return
+     */
+    public List<ShoppingCart> list(Long userId) {
+        Map<Object, Object> numbers = stringRedisTemplate.opsForHash().entries(numberKey(userId));
+        if (numbers.isEmpty()) {
+            load(userId);
+            numbers = stringRedisTemplate.opsForHash().entries(numberKey(userId));
+        }
+        Map<Object, Object> items = redisTemplate.opsForHash().entries(itemKey(userId));
+
+        List<ShoppingCart> list = new ArrayList<>();
+        for (Map.Entry<Object, Object> entry : numbers.entrySet()) {
+            ShoppingCart item = (ShoppingCart) items.get(entry.getKey());
+            if (LOADED_FIELD.equals(entry.getKey()) || item == null) {
+                //载入标记，或商品快照尚未写入（并发加入中）
+                continue;
+            }
+            item.setUserId(userId);
+            item.setNumber(Integer.valueOf((String) entry.getValue()));
+            list.add(item);
+        }
+        list.sort(Comparator.comparing(ShoppingCart::getCreateTime, Comparator.nullsLast(Comparator.naturalOrder())));
+        return list;
+    }
+
+    /**
+     * 清空用户的购物车
+     * 在数据库事务中调用时（如下单），事务提交后才清空，事务回滚时购物车保持不变
+     * @param userId
+     */
+    public void clean(Long userId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    executeClean(userId);
+                }
+            });
+        } else {
+            executeClean(userId);
+        }
+    }
+
+    private void executeClean(Long userId) {
+        stringRedisTemplate.execute(CLEAN_SCRIPT, keys(userId), String.valueOf(TTL_MILLIS));
+        markDirty(userId);
+    }
+
+    /**
+     * 取出待回写数据库的用户id，取出后从集合中移除
+     * @param count 最多取出的数量
+     * @return
+     */
+    public List<Long> popDirty(long count) {
+        List<String> userIds = stringRedisTemplate.opsForSet().pop(DIRTY_KEY, count);
+        if (userIds == null) {
+            return new ArrayList<>();
+        }
+        return userIds.stream().map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    /**
+     * 重新标记用户待回写（回写失败时调用）
+     * @param userId
+     */
+    public void markDirty(Long userId) {
+        stringRedisTemplate.opsForSet().add(DIRTY_KEY, userId.toString());
+    }
+
+    /**
+     * 将用户在redis中的购物车回写到数据库：按唯一索引upsert当前商品的份数，再删除已移出购物车的商品
+     * @param userId
+     */
+    @Transactional
+    public void flush(Long userId) {
+        List<ShoppingCart> list = list(userId);
+        if (list.isEmpty()) {
+            shoppingCartMapper.deleteByUserId(userId);
+            return;
+        }
+        shoppingCartMapper.upsertBatch(list);
+        shoppingCartMapper.deleteByUserIdAndNotIn(userId, list);
+    }
+
+    /**
+     * 执行修改商品份数的脚本
+     * @param userId
+     * @param field
+     * @param delta
+     * @return 购物车未载入时返回null
+     */
+    private Long executeIncrement(Long userId, String field, long delta) {
+        Long number = stringRedisTemplate.execute(INCREMENT_SCRIPT, keys(userId),
+                field, String.valueOf(delta), String.valueOf(TTL_MILLIS));
+        if (number != null) {
+            //修改成功后记录待回写的用户
+            markDirty(userId);
+        }
+        return number;
+    }
+
+    /**
+     * 从数据库载入用户的购物车
+     * @param userId
+     */
+    private void load(Long userId) {
+        ShoppingCart shoppingCart = new ShoppingCart();
+        shoppingCart.setUserId(userId);
+        List<ShoppingCart> list = shoppingCartMapper.list(shoppingCart);
+
+        //同一商品在数据库中可能存在多条记录，合并份数
+        Map<String, ShoppingCart> items = new HashMap<>();
+        Map<String, Integer> numbers = new HashMap<>();
+        for (ShoppingCart cart : list) {
+            String field = field(cart.getDishId(), cart.getSetmealId(), cart.getDishFlavor());
+            items.putIfAbsent(field, cart);
+            numbers.merge(field, cart.getNumber(), Integer::sum);
+        }
+
+        //先写入商品快照，再写入份数，保证份数可见时快照已存在
+        if (!items.isEmpty()) {
+            String itemKey = itemKey(userId);
+            redisTemplate.opsForHash().putAll(itemKey, items);
+            redisTemplate.expire(itemKey, TTL_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(TTL_MILLIS));
+        numbers.forEach((field, number) -> {
+            args.add(field);
+            args.add(number.toString());
+        });
+        stringRedisTemplate.execute(LOAD_SCRIPT, Arrays.asList(numberKey(userId)), args.toArray());
+    }
+
+    private List<String> keys(Long userId) {
+        return Arrays.asList(numberKey(userId), itemKey(userId));
+    }
+
+    private String numberKey(Long userId) {
+        return NUMBER_KEY_PREFIX + "{" + userId + "}";
+    }
+
+    private String itemKey(Long userId) {
+        return ITEM_KEY_PREFIX + "{" + userId + "}";
+    }
+}
@@ -0,0 +1,50 @@
+package com.sky.task;
+
+import com.sky.lock.Lease;
+import com.sky.lock.LeaseLock;
+import com.sky.service.ReportService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时任务类：定时校正每日运营数据汇总
+ */
+@Component
+@Slf4j
+public class BusinessStatsTask {
+    //锁的最短持有时间，避免时钟稍慢的节点在任务结束后再次执行
+    private static final long LOCK_AT_LEAST = TimeUnit.MINUTES.toMillis(10);
+
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private LeaseLock leaseLock;
+
+    /**
+     * 根据原始数据重建最近7天的运营数据汇总，修正增量统计可能产生的偏差
+     */
+    @Scheduled(cron = "0 0 2 * * ?")  //每天2点触发一次（在1点的派送中订单处理之后）
+    public void rebuildBusinessStats(){
+        //集群中只有获取到锁的节点执行
+        Lease lease = leaseLock.tryAcquire("business_stats_task", TimeUnit.MINUTES.toMillis(30));
+        if(lease==null){
+            return;
+        }
+        log.info("定时重建运营数据汇总：{}，令牌：{}", LocalDateTime.now(), lease.getToken());
+
+        try {
+            LocalDate end = LocalDate.now().minusDays(1);  //昨天
+            LocalDate begin = end.minusDays(6);  //7天前
+            reportService.rebuildBusinessStats(begin,end);
+        } finally {
+            leaseLock.release(lease, LOCK_AT_LEAST);
+        }
+    }
+}
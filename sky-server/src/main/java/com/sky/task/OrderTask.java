@@ -1,14 +1,22 @@
 package com.sky.task;
 
 import com.sky.entity.Orders;
+import com.sky.lock.Lease;
+import com.sky.lock.LeaseLock;
+import com.sky.mapper.JobLeaseMapper;
 import com.sky.mapper.OrderMapper;
+import com.sky.queue.OrderTimeoutQueue;
+import com.sky.service.ReportService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 定时任务类：定时处理订单状态
@@ -16,28 +24,69 @@ import java.util.List;
 @Component
 @Slf4j
 public class OrderTask {
+    //每批修改的订单数，分批提交以缩短单次更新持有行锁的时间
+    private static final int BATCH_SIZE = 500;
+
+    //定时任务锁的最短持有时间，避免时钟稍慢的节点在任务结束后再次执行
+    private static final long TIMEOUT_TASK_LOCK_AT_LEAST = TimeUnit.MINUTES.toMillis(1);
+    private static final long DELIVERY_TASK_LOCK_AT_LEAST = TimeUnit.MINUTES.toMillis(10);
+
     @Autowired
     private OrderMapper orderMapper;
 
+    @Autowired
+    private ReportService reportService;
+
+    @Autowired
+    private OrderTimeoutQueue orderTimeoutQueue;
+
+    @Autowired
+    private LeaseLock leaseLock;
+
+    @Autowired
+    private JobLeaseMapper jobLeaseMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
     /**
-     * 处理超时订单
+     * 处理延迟队列中到期的订单，订单在超时后1秒内被取消
      */
-    @Scheduled(cron = "0 * * * * ?")  //每分钟触发一次
-    public void processTimeoutOrder(){
-        log.info("定时处理超时订单：{}",LocalDateTime.now());
+    @Scheduled(fixedDelay = 1000)  //上次执行结束1秒后再次触发
+    public void processExpiredOrder(){
+        List<Long> orderIds;
+        do {
+            orderIds = orderTimeoutQueue.pollExpired(BATCH_SIZE);
+            if(orderIds.isEmpty()){
+                return;
+            }
+            //只取消仍处于待付款状态的订单，已支付或已取消的订单不受影响
+            int rows = orderMapper.updateByIdsAndStatus(buildTimeoutCancel(), orderIds, Orders.PENDING_PAYMENT);
+            log.info("延迟队列到期订单：{}，取消订单数：{}", orderIds.size(), rows);
+        } while (orderIds.size() == BATCH_SIZE);
+    }
 
-        LocalDateTime time = LocalDateTime.now().plusMinutes(-15);  //现在时间-15分钟
-        List<Orders> ordersList=orderMapper.getByStatusAndOrderTimeLT(Orders.PENDING_PAYMENT,time);
 
-        if(ordersList!=null && ordersList.size()>0){
-            for (Orders orders : ordersList) {
-                //处理超时订单
-                orders.setStatus(Orders.CANCELLED);  //更新状态：已取消
-                orders.setCancelTime(LocalDateTime.now());  //设置取消时间
-                orders.setCancelReason("超时订单，自动取消");  //设置取消原因
+    /**
+     * 兜底处理超时订单：延迟队列中丢失的订单（如本地延迟队列随进程重启丢失）由定时扫描取消
+     */
+    @Scheduled(cron = "0 0/10 * * * ?")  //每10分钟触发一次
+    public void processTimeoutOrder(){
+        //集群中只有获取到锁的节点执行
+        Lease lease = leaseLock.tryAcquire("order_timeout_task", TimeUnit.MINUTES.toMillis(5));
+        if(lease==null){
+            return;
+        }
+        log.info("定时处理超时订单：{}，令牌：{}",LocalDateTime.now(),lease.getToken());
 
-                orderMapper.update(orders);
-            }
+        try {
+            LocalDateTime time = LocalDateTime.now().plusMinutes(-OrderTimeoutQueue.TIMEOUT_MINUTES);  //现在时间-15分钟
+
+            long start = System.currentTimeMillis();
+            int rows = updateInBatches(lease, buildTimeoutCancel(), Orders.PENDING_PAYMENT, time);
+            log.info("超时订单处理完成，取消订单数：{}，耗时：{}ms", rows, System.currentTimeMillis() - start);
+        } finally {
+            leaseLock.release(lease, TIMEOUT_TASK_LOCK_AT_LEAST);
         }
     }
 
@@ -47,17 +96,86 @@ public class OrderTask {
      */
     @Scheduled(cron = "0 0 1 * * ?")  //每天1点触发一次
     public void processDeliveryOrder(){
-        log.info("定时处理派送中的订单：{}",LocalDateTime.now());
+        //集群中只有获取到锁的节点执行
+        Lease lease = leaseLock.tryAcquire("order_delivery_task", TimeUnit.MINUTES.toMillis(30));
+        if(lease==null){
+            return;
+        }
+        log.info("定时处理派送中的订单：{}，令牌：{}",LocalDateTime.now(),lease.getToken());
 
-        LocalDateTime time = LocalDateTime.now().plusMinutes(-60);  //现在时间-60分钟（即每天0点）
-        List<Orders> ordersList = orderMapper.getByStatusAndOrderTimeLT(Orders.DELIVERY_IN_PROGRESS, time);
+        try {
+            LocalDateTime time = LocalDateTime.now().plusMinutes(-60);  //现在时间-60分钟（即每天0点）
 
-        if(ordersList!=null && ordersList.size()>0){
-            for (Orders orders : ordersList) {
-                orders.setStatus(Orders.COMPLETED);  //更新状态：已完成
+            //先查出受影响订单中最早的下单时间，用于确定需要校正的汇总日期区间
+            LocalDateTime minOrderTime = orderMapper.getMinOrderTimeByStatusAndOrderTimeLT(Orders.DELIVERY_IN_PROGRESS, time);
+            if(minOrderTime==null){
+                return;
+            }
 
-                orderMapper.update(orders);
+            Orders orders = new Orders();
+            orders.setStatus(Orders.COMPLETED);  //更新状态：已完成
+
+            long start = System.currentTimeMillis();
+            int rows = updateInBatches(lease, orders, Orders.DELIVERY_IN_PROGRESS, time);
+
+            //订单完成会改变下单当天的有效订单数和营业额，按原始数据重建受影响日期的汇总
+            //受影响的订单都在今天0点之前下单，重建到昨天为止，不覆盖仍在增量更新的今天的汇总
+            //重建区间有天数上限，受影响日期跨度较大时分段重建
+            LocalDate end = time.toLocalDate().minusDays(1);
+            for (LocalDate begin = minOrderTime.toLocalDate(); !begin.isAfter(end); begin = begin.plusDays(ReportService.MAX_REPORT_DAYS)) {
+                LocalDate segmentEnd = begin.plusDays(ReportService.MAX_REPORT_DAYS - 1);
+                reportService.rebuildBusinessStats(begin, segmentEnd.isAfter(end) ? end : segmentEnd);
             }
+            log.info("派送中订单处理完成，完成订单数：{}，耗时：{}ms", rows, System.currentTimeMillis() - start);
+        } finally {
+            leaseLock.release(lease, DELIVERY_TASK_LOCK_AT_LEAST);
         }
     }
+
+    /**
+     * 构造超时取消订单要修改的字段
+     * @return
+     */
+    private Orders buildTimeoutCancel(){
+        Orders orders = new Orders();
+        orders.setStatus(Orders.CANCELLED);  //更新状态：已取消
+        orders.setCancelTime(LocalDateTime.now());  //设置取消时间
+        orders.setCancelReason("超时订单，自动取消");  //设置取消原因
+        return orders;
+    }
+
+    /**
+     * 按订单状态和下单时间分批修改订单，直到没有符合条件的订单
+     * 每批修改前校验租约，租约失效（已过期或被其他节点取代）时尽早停止；
+     * 每批更新与令牌校验在同一事务中提交，新的持有者写入过之后旧持有者的更新被拒绝
+     * @param lease
+     * @param orders 要修改的字段
+     * @param status
+     * @param orderTime
+     * @return 修改的总行数
+     */
+    private int updateInBatches(Lease lease, Orders orders, Integer status, LocalDateTime orderTime){
+        jobLeaseMapper.insertIfAbsent(lease.getName());
+        int total = 0;
+        Integer rows;
+        do {
+            if(!leaseLock.isHeld(lease)){
+                log.warn("锁：{}已失效，令牌：{}，停止处理", lease.getName(), lease.getToken());
+                break;
+            }
+            rows = transactionTemplate.execute(transactionStatus -> {
+                //令牌校验会锁住任务的防护行直到本批提交，与其他持有者的写入串行执行
+                if(jobLeaseMapper.fence(lease.getName(), lease.getToken()) == 0){
+                    return null;
+                }
+                return orderMapper.updateByStatusAndOrderTimeLT(orders, status, orderTime, BATCH_SIZE);
+            });
+            if(rows == null){
+                log.warn("锁：{}已被更新的令牌取代，令牌：{}，停止处理", lease.getName(), lease.getToken());
+                break;
+            }
+            total += rows;
+        } while (rows == BATCH_SIZE);
+        return total;
+    }
 }
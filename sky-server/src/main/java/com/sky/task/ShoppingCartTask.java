@@ -0,0 +1,65 @@
+package com.sky.task;
+
+import com.sky.lock.Lease;
+import com.sky.lock.LeaseLock;
+import com.sky.store.ShoppingCartStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定时任务类：将redis中的购物车回写到数据库
+ */
+@Component
+@Slf4j
+public class ShoppingCartTask {
+    //每次取出的待回写用户数
+    private static final int BATCH_SIZE = 100;
+
+    //锁的最短持有时间，小于触发间隔，本节点下次触发时可以再次获取
+    private static final long LOCK_AT_LEAST = TimeUnit.SECONDS.toMillis(1);
+
+    @Autowired
+    private ShoppingCartStore shoppingCartStore;
+
+    @Autowired
+    private LeaseLock leaseLock;
+
+    /**
+     * 回写发生修改的购物车
+     */
+    @Scheduled(fixedDelay = 2000)  //上次执行结束2秒后再次触发
+    public void flushShoppingCart(){
+        //集群中只有获取到锁的节点执行，避免多个节点并发回写同一用户时旧数据覆盖新数据
+        Lease lease = leaseLock.tryAcquire("shopping_cart_task", TimeUnit.MINUTES.toMillis(1));
+        if(lease==null){
+            return;
+        }
+
+        try {
+            int count = 0;
+            List<Long> userIds;
+            do {
+                userIds = shoppingCartStore.popDirty(BATCH_SIZE);
+                for (Long userId : userIds) {
+                    try {
+                        shoppingCartStore.flush(userId);
+                        count++;
+                    } catch (Exception e) {
+                        log.error("用户：{}的购物车回写失败：{}", userId, e.getMessage());
+                        shoppingCartStore.markDirty(userId);
+                    }
+                }
+            } while (userIds.size() == BATCH_SIZE && leaseLock.isHeld(lease));
+            if(count>0){
+                log.info("购物车回写完成，用户数：{}", count);
+            }
+        } finally {
+            leaseLock.release(lease, LOCK_AT_LEAST);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.sky.websocket;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 通过redis在节点之间转发的WebSocket消息
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RelayMessage {
+
+    //发布消息的节点id，节点收到自己发布的消息时忽略
+    private String nodeId;
+
+    //目标分组，为null时推送给所有会话
+    private String group;
+
+    //消息内容
+    private String message;
+}
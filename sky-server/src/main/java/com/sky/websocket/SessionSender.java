@@ -0,0 +1,143 @@
+package com.sky.websocket;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.websocket.CloseReason;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个WebSocket会话的异步发送队列
+ * 同一会话同一时刻只有一条消息在异步发送中，发送完成后由回调继续发送下一条，调用方只负责入队不会被阻塞
+ * 积压的消息超过上限说明客户端消费过慢，直接关闭该会话，由客户端重连
+ */
+@Slf4j
+public class SessionSender {
+
+    //关闭会话用的线程池：容器关闭会话时会等待发送中的消息完成（最长为发送超时时间），
+    //不能在业务线程或发送完成回调的线程中执行
+    private static final ExecutorService CLOSE_EXECUTOR = Executors.newFixedThreadPool(4, runnable -> {
+        Thread thread = new Thread(runnable, "websocket-close");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final String sid;
+
+    private final Session session;
+
+    //会话订阅的分组
+    private final Set<String> groups;
+
+    private final int maxPendingMessages;
+
+    //待发送的消息
+    private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+
+    //队列中的消息数（ConcurrentLinkedQueue的size()需要遍历，单独计数）
+    private final AtomicInteger pending = new AtomicInteger();
+
+    //是否有消息正在发送中
+    private final AtomicBoolean sending = new AtomicBoolean();
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    public SessionSender(String sid, Session session, Set<String> groups, int maxPendingMessages, long sendTimeout) {
+        this.sid = sid;
+        this.session = session;
+        this.groups = groups;
+        this.maxPendingMessages = maxPendingMessages;
+        session.getAsyncRemote().setSendTimeout(sendTimeout);
+    }
+
+    public Session getSession() {
+        return session;
+    }
+
+    public Set<String> getGroups() {
+        return groups;
+    }
+
+    /**
+     * 消息入队并触发发送，不阻塞调用方
+     * @param message
+     * @return 会话已关闭或积压超限时返回false
+     */
+    public boolean send(String message) {
+        if (closed.get()) {
+            return false;
+        }
+        if (pending.incrementAndGet() > maxPendingMessages) {
+            pending.decrementAndGet();
+            log.warn("客户端：{}积压消息超过{}条，关闭连接", sid, maxPendingMessages);
+            close(new CloseReason(CloseReason.CloseCodes.TRY_AGAIN_LATER, "too many pending messages"));
+            return false;
+        }
+        queue.offer(message);
+        drain();
+        return true;
+    }
+
+    /**
+     * 若当前没有发送中的消息，则取出队首消息异步发送
+     */
+    private void drain() {
+        while (!closed.get() && !queue.isEmpty() && sending.compareAndSet(false, true)) {
+            String message = queue.poll();
+            if (message == null) {
+                //被其他线程取走，释放发送权后重新检查
+                sending.set(false);
+                continue;
+            }
+            pending.decrementAndGet();
+            try {
+                session.getAsyncRemote().sendText(message, this::onSendResult);
+            } catch (Exception e) {
+                log.warn("客户端：{}消息发送失败：{}", sid, e.getMessage());
+                close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "send failed"));
+            }
+            return;
+        }
+    }
+
+    /**
+     * 异步发送完成的回调，成功则继续发送下一条，失败（包括超时）则关闭会话
+     * @param result
+     */
+    private void onSendResult(SendResult result) {
+        if (!result.isOK()) {
+            log.warn("客户端：{}消息发送失败：{}", sid, result.getException() == null ? null : result.getException().getMessage());
+            close(new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "send failed"));
+            return;
+        }
+        sending.set(false);
+        drain();
+    }
+
+    /**
+     * 标记会话已关闭并丢弃积压的消息，在独立线程中关闭会话，不阻塞调用方
+     * 关闭后由WebSocketServer.onClose从注册表中移除
+     * @param reason
+     */
+    public void close(CloseReason reason) {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        queue.clear();
+        CLOSE_EXECUTOR.execute(() -> {
+            try {
+                session.close(reason);
+            } catch (IOException e) {
+                log.debug("客户端：{}关闭连接失败：{}", sid, e.getMessage());
+            }
+        });
+    }
+}
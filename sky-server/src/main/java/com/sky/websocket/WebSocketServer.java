@@ -1,33 +1,87 @@
 package com.sky.websocket;
 
+import com.alibaba.fastjson.JSON;
+import com.sky.constant.WebSocketConstant;
+import com.sky.properties.WebSocketProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Component;
+
+import javax.websocket.CloseReason;
 import javax.websocket.OnClose;
+import javax.websocket.OnError;
 import javax.websocket.OnMessage;
 import javax.websocket.OnOpen;
 import javax.websocket.Session;
 import javax.websocket.server.PathParam;
 import javax.websocket.server.ServerEndpoint;
-import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * WebSocket服务
+ * 客户端建立连接时通过groups参数订阅分组（如角色、店铺），消息只推送给目标分组内的会话
+ * 会话只保存在建立连接的节点上，推送时先投递给本节点的会话，再通过redis发布给其他节点投递
  */
 @Component
 @ServerEndpoint("/ws/{sid}")
+@Slf4j
 public class WebSocketServer {
 
-    //存放会话对象
-    private static Map<String, Session> sessionMap = new HashMap();
+    //节点之间转发消息的频道
+    public static final String RELAY_CHANNEL = "websocket_relay";
+
+    //当前节点的id
+    private static final String NODE_ID = UUID.randomUUID().toString();
+
+    //存放会话对应的发送队列，key为sid
+    private static final Map<String, SessionSender> senderMap = new ConcurrentHashMap<>();
+
+    //存放分组内的会话，key为分组，value为该分组内sid到发送队列的映射
+    private static final Map<String, Map<String, SessionSender>> groupMap = new ConcurrentHashMap<>();
+
+    //每个连接的端点实例由容器创建，无法注入，配置通过spring管理的实例保存到静态字段
+    private static WebSocketProperties webSocketProperties;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    public void setWebSocketProperties(WebSocketProperties webSocketProperties) {
+        WebSocketServer.webSocketProperties = webSocketProperties;
+    }
 
     /**
      * 连接建立成功调用的方法
      */
     @OnOpen
     public void onOpen(Session session, @PathParam("sid") String sid) {
-        System.out.println("客户端：" + sid + "建立连接");
-        sessionMap.put(sid, session);
+        Set<String> groups = getGroups(session);
+        log.info("客户端：{}建立连接，订阅分组：{}", sid, groups);
+        SessionSender sender = new SessionSender(sid, session, groups,
+                webSocketProperties.getMaxPendingMessages(), webSocketProperties.getSendTimeout());
+        SessionSender old = senderMap.put(sid, sender);
+        if (old != null) {
+            //同一sid重复连接，先移出旧连接的分组再关闭
+            removeFromGroups(sid, old);
+            old.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "replaced by new connection"));
+        }
+        for (String group : groups) {
+            //与removeFromGroups一样在compute中修改，避免加入的同时空分组被移除
+            groupMap.compute(group, (k, senders) -> {
+                if (senders == null) {
+                    senders = new ConcurrentHashMap<>();
+                }
+                senders.put(sid, sender);
+                return senders;
+            });
+        }
     }
 
     /**
@@ -37,7 +91,7 @@ public class WebSocketServer {
      */
     @OnMessage
     public void onMessage(String message, @PathParam("sid") String sid) {
-        System.out.println("收到来自客户端：" + sid + "的信息:" + message);
+        log.info("收到来自客户端：{}的信息：{}", sid, message);
     }
 
     /**
@@ -46,26 +100,137 @@ public class WebSocketServer {
      * @param sid
      */
     @OnClose
-    public void onClose(@PathParam("sid") String sid) {
-        System.out.println("连接断开:" + sid);
-        sessionMap.remove(sid);
+    public void onClose(Session session, @PathParam("sid") String sid) {
+        log.info("连接断开：{}", sid);
+        remove(sid, session);
+    }
+
+    /**
+     * 连接发生错误调用的方法
+     *
+     * @param sid
+     * @param error
+     */
+    @OnError
+    public void onError(Session session, @PathParam("sid") String sid, Throwable error) {
+        log.warn("客户端：{}连接异常：{}", sid, error.getMessage());
+        remove(sid, session);
     }
 
     /**
-     * 群发
+     * 群发：消息放入各会话的发送队列后立即返回，不等待客户端接收
      *
      * @param message
      */
     public void sendToAllClient(String message) {
-        Collection<Session> sessions = sessionMap.values();
-        for (Session session : sessions) {
-            try {
-                //服务器向客户端发送消息
-                session.getBasicRemote().sendText(message);
-            } catch (Exception e) {
-                e.printStackTrace();
+        sendToGroup(null, message);
+    }
+
+    /**
+     * 向指定分组内的会话推送消息，包括连接在其他节点上的会话
+     *
+     * @param group 为null时推送给所有会话
+     * @param message
+     */
+    public void sendToGroup(String group, String message) {
+        sendToLocal(group, message);
+        publish(group, message);
+    }
+
+    /**
+     * 处理其他节点通过redis转发过来的消息，投递给本节点的会话
+     *
+     * @param body
+     */
+    public void onRelayMessage(String body) {
+        RelayMessage relayMessage = JSON.parseObject(body, RelayMessage.class);
+        if (NODE_ID.equals(relayMessage.getNodeId())) {
+            //本节点发布的消息在发布前已投递
+            return;
+        }
+        sendToLocal(relayMessage.getGroup(), relayMessage.getMessage());
+    }
+
+    /**
+     * 向本节点上指定分组内的会话推送消息，只遍历该分组的会话
+     *
+     * @param group 为null时推送给本节点所有会话
+     * @param message
+     */
+    private void sendToLocal(String group, String message) {
+        Map<String, SessionSender> senders = group == null ? senderMap : groupMap.get(group);
+        if (senders == null) {
+            return;
+        }
+        for (SessionSender sender : senders.values()) {
+            sender.send(message);
+        }
+    }
+
+    /**
+     * 通过redis将消息发布给其他节点，发布失败不影响本节点已投递的消息和业务流程
+     *
+     * @param group
+     * @param message
+     */
+    private void publish(String group, String message) {
+        try {
+            stringRedisTemplate.convertAndSend(RELAY_CHANNEL,
+                    JSON.toJSONString(new RelayMessage(NODE_ID, group, message)));
+        } catch (Exception e) {
+            log.warn("websocket消息转发到其他节点失败：{}", e.getMessage());
+        }
+    }
+
+    /**
+     * 解析连接请求中订阅的分组，未指定时加入默认分组
+     * @param session
+     * @return
+     */
+    private Set<String> getGroups(Session session) {
+        Set<String> groups = new LinkedHashSet<>();
+        List<String> params = session.getRequestParameterMap()
+                .getOrDefault(WebSocketConstant.GROUP_PARAM, Collections.emptyList());
+        for (String param : params) {
+            for (String group : param.split(",")) {
+                if (!group.trim().isEmpty()) {
+                    groups.add(group.trim());
+                }
             }
         }
+        if (groups.isEmpty()) {
+            groups.add(WebSocketConstant.DEFAULT_GROUP);
+        }
+        return Collections.unmodifiableSet(groups);
+    }
+
+    /**
+     * 从注册表中移除会话，只移除属于当前会话的记录，避免误删同一sid的新连接
+     * @param sid
+     * @param session
+     */
+    private void remove(String sid, Session session) {
+        SessionSender sender = senderMap.get(sid);
+        if (sender == null || sender.getSession() != session) {
+            return;
+        }
+        if (senderMap.remove(sid, sender)) {
+            removeFromGroups(sid, sender);
+        }
+    }
+
+    /**
+     * 将会话移出其订阅的所有分组，分组为空时一并移除
+     * @param sid
+     * @param sender
+     */
+    private void removeFromGroups(String sid, SessionSender sender) {
+        for (String group : sender.getGroups()) {
+            groupMap.computeIfPresent(group, (k, senders) -> {
+                senders.remove(sid, sender);
+                return senders.isEmpty() ? null : senders;
+            });
+        }
     }
 
 }
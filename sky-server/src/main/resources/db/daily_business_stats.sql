@@ -0,0 +1,36 @@
+-- 每日运营数据汇总表，由订单状态流转和用户注册增量维护，可通过重建任务从原始数据回填
+create table if not exists daily_business_stats
+(
+    date         date                     not null comment '统计日期' primary key,
+    turnover     decimal(12, 2) default 0 not null comment '营业额',
+    total_orders int            default 0 not null comment '订单总数',
+    valid_orders int            default 0 not null comment '有效订单数',
+    new_users    int            default 0 not null comment '新增用户数',
+    update_time  datetime                 null comment '更新时间'
+) comment '每日运营数据汇总';
+
+-- 一次性回填：按原始订单和用户数据生成已有日期的汇总（口径与ReportServiceImpl#rebuildBusinessStats一致）
+-- 报表只读取汇总表，必须在新版本启动前执行；已存在的记录直接覆盖，可以重复执行
+-- 执行后到新版本启动之间产生的数据，由每晚的重建任务（重建最近7天）校正
+insert into daily_business_stats (date, turnover, total_orders, valid_orders, new_users, update_time)
+select d.date, sum(d.turnover), sum(d.total_orders), sum(d.valid_orders), sum(d.new_users), now()
+from (select date(order_time)                    date,
+             sum(if(status = 5, amount, 0))      turnover,      -- 5：已完成
+             count(id)                           total_orders,
+             sum(if(status = 5, 1, 0))           valid_orders,
+             0                                   new_users
+      from orders
+      where order_time is not null
+      group by date(order_time)
+      union all
+      select date(create_time), 0, 0, 0, count(id)
+      from user
+      where create_time is not null
+      group by date(create_time)) d
+group by d.date
+on duplicate key update
+    turnover     = values(turnover),
+    total_orders = values(total_orders),
+    valid_orders = values(valid_orders),
+    new_users    = values(new_users),
+    update_time  = values(update_time);
@@ -0,0 +1,7 @@
+-- 定时任务的防护令牌表，每个任务一行，记录已写入过数据的最大令牌
+-- 任务每批写入前在同一事务中用自己的令牌更新此行，令牌更小（已被新的持有者取代）的旧持有者更新失败并停止写入
+create table if not exists job_lease
+(
+    name  varchar(64)         not null comment '任务锁名称' primary key,
+    token bigint    default 0 not null comment '已写入过数据的最大令牌'
+) comment '定时任务防护令牌';
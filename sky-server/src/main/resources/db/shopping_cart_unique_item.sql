@@ -0,0 +1,26 @@
+-- 购物车中同一用户的同一商品（菜品+口味或套餐）只保留一条记录，为回写时的upsert提供唯一约束
+-- dish_id、setmeal_id、dish_flavor可能为null，null不参与唯一约束，因此通过生成列构造商品标识
+
+-- 1、合并已存在的重复记录：份数累加到id最小的记录上，再删除其余记录
+update shopping_cart sc
+    join (select min(id) id, sum(number) total
+          from shopping_cart
+          group by user_id, ifnull(dish_id, 0), ifnull(setmeal_id, 0), ifnull(dish_flavor, '')
+          having count(*) > 1) d on sc.id = d.id
+set sc.number = d.total;
+
+delete sc
+from shopping_cart sc
+         join shopping_cart keep
+              on keep.user_id = sc.user_id
+                  and ifnull(keep.dish_id, 0) = ifnull(sc.dish_id, 0)
+                  and ifnull(keep.setmeal_id, 0) = ifnull(sc.setmeal_id, 0)
+                  and ifnull(keep.dish_flavor, '') = ifnull(sc.dish_flavor, '')
+                  and keep.id < sc.id;
+
+-- 2、增加商品标识生成列和唯一索引
+alter table shopping_cart
+    add column item_key varchar(100)
+        generated always as (concat_ws(':', ifnull(dish_id, 0), ifnull(setmeal_id, 0), ifnull(dish_flavor, ''))) stored
+        comment '商品标识',
+    add unique key uk_user_item (user_id, item_key);
@@ -0,0 +1,4 @@
+-- 同一个openid只对应一个用户，为登录时的幂等注册（insert ignore）提供唯一约束
+-- 执行前需确认不存在重复的openid：select openid from user group by openid having count(*) > 1
+alter table user
+    add unique key uk_openid (openid);
@@ -0,0 +1,102 @@
+package com.sky.cache;
+
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.sky.config.RedisConfiguration;
+import com.sky.entity.DishFlavor;
+import com.sky.vo.DishVO;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.JdkSerializationRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.net.URL;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * redis value序列化器：兼容性、类型限制，以及与jdk序列化的体积对比
+ */
+public class RedisValueSerializerTest {
+
+    private final RedisSerializer<Object> serializer = new RedisConfiguration().redisValueSerializer();
+
+    private final RedisSerializer<Object> jdkSerializer = new JdkSerializationRedisSerializer();
+
+    @Test
+    public void roundTrip() {
+        List<DishVO> dishes = dishes(20);
+        assertEquals(dishes, serializer.deserialize(serializer.serialize(dishes)));
+        assertEquals(1, serializer.deserialize(serializer.serialize(1)));
+    }
+
+    /**
+     * 切换序列化格式前写入的jdk序列化数据仍可读取
+     */
+    @Test
+    public void readsLegacyJdkValues() {
+        List<DishVO> dishes = dishes(20);
+        assertEquals(dishes, serializer.deserialize(jdkSerializer.serialize(dishes)));
+        assertEquals(1, serializer.deserialize(jdkSerializer.serialize(1)));
+    }
+
+    /**
+     * 数据中记录的类型不在允许范围内时拒绝还原，两种格式都一样
+     */
+    @Test
+    public void rejectsDisallowedTypes() throws Exception {
+        URL url = new URL("http://example.com");
+
+        ObjectMapper permissive = new ObjectMapper(new SmileFactory());
+        permissive.activateDefaultTyping(LaissezFaireSubTypeValidator.instance,
+                ObjectMapper.DefaultTyping.OBJECT_AND_NON_CONCRETE, JsonTypeInfo.As.PROPERTY);
+        byte[] smile = permissive.writerFor(Object.class).writeValueAsBytes(url);
+        assertThrows(SerializationException.class, () -> serializer.deserialize(smile));
+
+        byte[] jdk = jdkSerializer.serialize(url);
+        assertThrows(SerializationException.class, () -> serializer.deserialize(jdk));
+    }
+
+    /**
+     * 菜品列表缓存（20个菜品，每个2种口味）的存储体积小于jdk序列化，编解码耗时见RedisValueSerializerBenchmark
+     */
+    @Test
+    public void smallerThanJdk() {
+        List<DishVO> dishes = dishes(20);
+        byte[] smile = serializer.serialize(dishes);
+        byte[] jdk = jdkSerializer.serialize(dishes);
+
+        assertTrue(smile.length < jdk.length, "smile格式应小于jdk序列化");
+    }
+
+    private static List<DishVO> dishes(int count) {
+        List<DishVO> dishes = new ArrayList<>();
+        for (long i = 1; i <= count; i++) {
+            List<DishFlavor> flavors = new ArrayList<>();
+            flavors.add(DishFlavor.builder().id(i * 10).dishId(i).name("辣度").value("[\"不辣\",\"微辣\",\"中辣\",\"重辣\"]").build());
+            flavors.add(DishFlavor.builder().id(i * 10 + 1).dishId(i).name("忌口").value("[\"不要葱\",\"不要蒜\",\"不要香菜\"]").build());
+            dishes.add(DishVO.builder()
+                    .id(i)
+                    .name("菜品" + i)
+                    .categoryId(11L)
+                    .price(new BigDecimal("38.00"))
+                    .image("https://sky-take-out.oss-cn-hangzhou.aliyuncs.com/" + i + ".png")
+                    .description("精选食材，现点现做")
+                    .status(1)
+                    .updateTime(LocalDateTime.of(2024, 1, 1, 12, 0))
+                    .flavors(flavors)
+                    .imageVariants(new LinkedHashMap<>())
+                    .build());
+        }
+        return dishes;
+    }
+}
@@ -0,0 +1,110 @@
+package com.sky.cache;
+
+import com.sky.utils.JwtUtil;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.SignatureException;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 验证已校验令牌缓存的命中、过期和无效令牌的处理
+ */
+public class VerifiedTokenCacheTest {
+
+    private static final String SECRET = "itcast";
+
+    private static final String CLAIM = "empId";
+
+    //可调的时钟，代替等待令牌过期
+    private final MutableClock clock = new MutableClock(Instant.now());
+
+    private final VerifiedTokenCache cache = new VerifiedTokenCache(SECRET, CLAIM, 100, clock);
+
+    private static String token(String secret, long id, long ttlMillis) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(CLAIM, id);
+        return JwtUtil.createJWT(secret, ttlMillis, claims);
+    }
+
+    @Test
+    public void returnsIdFromCache() {
+        String token = token(SECRET, 1L, 60_000);
+
+        assertEquals(Long.valueOf(1L), cache.verify(token));
+        assertEquals(Long.valueOf(1L), cache.verify(token));
+    }
+
+    @Test
+    public void cachedTokenExpiresWithToken() {
+        String token = token(SECRET, 2L, 60_000);
+        assertEquals(Long.valueOf(2L), cache.verify(token));
+
+        //过期前仍命中缓存（令牌的过期时间精确到秒）
+        clock.advance(Duration.ofSeconds(30));
+        assertEquals(Long.valueOf(2L), cache.verify(token));
+
+        //令牌过期后缓存条目随之失效，重新校验时抛出过期异常
+        clock.advance(Duration.ofSeconds(31));
+        assertThrows(ExpiredJwtException.class, () -> cache.verify(token));
+    }
+
+    @Test
+    public void rejectsTokenSignedWithOtherKey() {
+        String token = token("other", 3L, 60_000);
+
+        assertThrows(SignatureException.class, () -> cache.verify(token));
+        assertThrows(SignatureException.class, () -> cache.verify(token));
+    }
+
+    @Test
+    public void tamperedTokenMissesCache() {
+        String token = token(SECRET, 4L, 60_000);
+        assertEquals(Long.valueOf(4L), cache.verify(token));
+
+        //修改签名后摘要不同，不会命中原令牌的缓存条目（签名最后一个字符含填充位，修改倒数第二个字符）
+        int index = token.length() - 2;
+        String tampered = token.substring(0, index) + (token.charAt(index) == 'A' ? 'B' : 'A') + token.substring(index + 1);
+        assertThrows(SignatureException.class, () -> cache.verify(tampered));
+    }
+
+    /**
+     * 可以手动前进的时钟
+     */
+    private static class MutableClock extends Clock {
+
+        private volatile Instant instant;
+
+        private MutableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        private void advance(Duration duration) {
+            instant = instant.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
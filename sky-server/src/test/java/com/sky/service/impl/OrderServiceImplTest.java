@@ -0,0 +1,141 @@
+package com.sky.service.impl;
+
+import com.github.pagehelper.Page;
+import com.github.pagehelper.PageHelper;
+import com.sky.context.BaseContext;
+import com.sky.dto.OrdersPageQueryDTO;
+import com.sky.entity.OrderDetail;
+import com.sky.entity.Orders;
+import com.sky.mapper.OrderDetailMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.result.PageResult;
+import com.sky.vo.OrderVO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 验证分页查询订单时批量查询订单明细后组装出的OrderVO
+ */
+public class OrderServiceImplTest {
+
+    private final OrderServiceImpl orderService = new OrderServiceImpl();
+
+    //当前页的订单
+    private final Page<Orders> ordersPage = new Page<>(1, 10);
+
+    //所有订单的明细
+    private final List<OrderDetail> orderDetails = new ArrayList<>();
+
+    //每次批量查询明细时传入的订单id
+    private final List<List<Long>> detailQueries = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        ordersPage.add(Orders.builder().id(1L).number("1001").status(Orders.COMPLETED).build());
+        ordersPage.add(Orders.builder().id(2L).number("1002").status(Orders.CONFIRMED).build());
+        ordersPage.add(Orders.builder().id(3L).number("1003").status(Orders.CANCELLED).build());
+        ordersPage.setTotal(3);
+
+        orderDetails.add(OrderDetail.builder().id(11L).orderId(1L).name("宫保鸡丁").number(3).build());
+        orderDetails.add(OrderDetail.builder().id(21L).orderId(2L).name("鱼香肉丝").number(1).build());
+        orderDetails.add(OrderDetail.builder().id(12L).orderId(1L).name("米饭").number(2).build());
+
+        set("orderMapper", Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{OrderMapper.class},
+                (proxy, method, args) -> {
+                    if ("pageQuery".equals(method.getName())) {
+                        return ordersPage;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }));
+        set("orderDetailMapper", Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{OrderDetailMapper.class},
+                (proxy, method, args) -> {
+                    if ("getByOrderIds".equals(method.getName())) {
+                        @SuppressWarnings("unchecked")
+                        List<Long> orderIds = (List<Long>) args[0];
+                        detailQueries.add(orderIds);
+                        return orderDetails.stream().filter(d -> orderIds.contains(d.getOrderId())).collect(Collectors.toList());
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }));
+        BaseContext.setCurrentId(100L);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        PageHelper.clearPage();
+        BaseContext.removeCurrentId();
+    }
+
+    private void set(String name, Object value) throws Exception {
+        Field field = OrderServiceImpl.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(orderService, value);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void pageQuery4UserAttachesDetailsToEachOrder() {
+        PageResult result = orderService.pageQuery4User(1, 10, null);
+
+        assertEquals(3, result.getTotal());
+        List<OrderVO> orderVOS = (List<OrderVO>) result.getRecords();
+        assertEquals(Arrays.asList(1L, 2L, 3L), orderVOS.stream().map(OrderVO::getId).collect(Collectors.toList()));
+        assertEquals("1001", orderVOS.get(0).getNumber());
+        assertEquals(Orders.COMPLETED, orderVOS.get(0).getStatus());
+
+        assertEquals(Arrays.asList(11L, 12L), ids(orderVOS.get(0).getOrderDetailList()));
+        assertEquals(Collections.singletonList(21L), ids(orderVOS.get(1).getOrderDetailList()));
+        //没有明细的订单返回空集合而不是null
+        assertTrue(orderVOS.get(2).getOrderDetailList().isEmpty());
+
+        //整页只批量查询一次明细
+        assertEquals(Collections.singletonList(Arrays.asList(1L, 2L, 3L)), detailQueries);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void conditionSearchBuildsOrderDishes() {
+        OrdersPageQueryDTO ordersPageQueryDTO = new OrdersPageQueryDTO();
+        ordersPageQueryDTO.setPage(1);
+        ordersPageQueryDTO.setPageSize(10);
+
+        PageResult result = orderService.conditionSearch(ordersPageQueryDTO);
+
+        List<OrderVO> orderVOS = (List<OrderVO>) result.getRecords();
+        assertEquals(3, orderVOS.size());
+        assertEquals("宫保鸡丁*3;米饭*2;", orderVOS.get(0).getOrderDishes());
+        assertEquals("鱼香肉丝*1;", orderVOS.get(1).getOrderDishes());
+        assertEquals("", orderVOS.get(2).getOrderDishes());
+        assertEquals(1, detailQueries.size());
+    }
+
+    @Test
+    public void emptyPageSkipsDetailQuery() {
+        ordersPage.clear();
+        ordersPage.setTotal(0);
+
+        OrdersPageQueryDTO ordersPageQueryDTO = new OrdersPageQueryDTO();
+        ordersPageQueryDTO.setPage(1);
+        ordersPageQueryDTO.setPageSize(10);
+
+        assertTrue(orderService.pageQuery4User(1, 10, null).getRecords().isEmpty());
+        assertTrue(orderService.conditionSearch(ordersPageQueryDTO).getRecords().isEmpty());
+        assertTrue(detailQueries.isEmpty());
+    }
+
+    private static List<Long> ids(List<OrderDetail> orderDetailList) {
+        return orderDetailList.stream().map(OrderDetail::getId).collect(Collectors.toList());
+    }
+}
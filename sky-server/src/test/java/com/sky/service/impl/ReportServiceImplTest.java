@@ -0,0 +1,151 @@
+package com.sky.service.impl;
+
+import com.sky.dto.OrderStatusCountDTO;
+import com.sky.dto.TurnoverDailyDTO;
+import com.sky.dto.UserDailyDTO;
+import com.sky.entity.DailyBusinessStats;
+import com.sky.entity.Orders;
+import com.sky.mapper.DailyBusinessStatsMapper;
+import com.sky.mapper.OrderMapper;
+import com.sky.mapper.UserMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 使用固定的分组查询结果验证重建每日运营数据汇总：分组结果按天展开，没有数据的日期记为0
+ */
+public class ReportServiceImplTest {
+
+    private final ReportServiceImpl reportService = new ReportServiceImpl();
+
+    private final LocalDate today = LocalDate.now();
+
+    //分组查询返回的数据
+    private final List<OrderStatusCountDTO> orderCounts = new ArrayList<>();
+
+    private final List<TurnoverDailyDTO> turnovers = new ArrayList<>();
+
+    private final List<UserDailyDTO> newUsers = new ArrayList<>();
+
+    //每次分组查询传入的查询条件
+    private final List<Map<?, ?>> queries = new ArrayList<>();
+
+    //写入汇总表的数据
+    private final List<DailyBusinessStats> written = new ArrayList<>();
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        set("orderMapper", Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{OrderMapper.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "countGroupByDateAndStatus":
+                            queries.add((Map<?, ?>) args[0]);
+                            return orderCounts;
+                        case "sumAmountGroupByDate":
+                            queries.add((Map<?, ?>) args[0]);
+                            return turnovers;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                }));
+        set("userMapper", Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{UserMapper.class},
+                (proxy, method, args) -> {
+                    if ("countGroupByDate".equals(method.getName())) {
+                        queries.add((Map<?, ?>) args[0]);
+                        return newUsers;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }));
+        set("dailyBusinessStatsMapper", Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{DailyBusinessStatsMapper.class},
+                (proxy, method, args) -> {
+                    if ("replaceBatch".equals(method.getName())) {
+                        @SuppressWarnings("unchecked")
+                        List<DailyBusinessStats> list = (List<DailyBusinessStats>) args[0];
+                        written.addAll(list);
+                        return null;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                }));
+    }
+
+    private void set(String name, Object value) throws Exception {
+        Field field = ReportServiceImpl.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(reportService, value);
+    }
+
+    @Test
+    public void rebuildExpandsGroupedResultsToEveryDay() {
+        LocalDate begin = today.minusDays(5);
+        LocalDate end = today.minusDays(2);
+
+        orderCounts.add(new OrderStatusCountDTO(begin, Orders.COMPLETED, 3));
+        orderCounts.add(new OrderStatusCountDTO(begin, Orders.CANCELLED, 2));
+        orderCounts.add(new OrderStatusCountDTO(begin.plusDays(2), Orders.PENDING_PAYMENT, 1));
+        turnovers.add(new TurnoverDailyDTO(begin, 88.5));
+        newUsers.add(new UserDailyDTO(begin.plusDays(2), 4));
+
+        reportService.rebuildBusinessStats(begin, end);
+
+        assertEquals(Arrays.asList(begin, begin.plusDays(1), begin.plusDays(2), end),
+                written.stream().map(DailyBusinessStats::getDate).collect(Collectors.toList()));
+
+        DailyBusinessStats first = written.get(0);
+        assertEquals(0, BigDecimal.valueOf(88.5).compareTo(first.getTurnover()));
+        assertEquals(Integer.valueOf(5), first.getTotalOrders());
+        assertEquals(Integer.valueOf(3), first.getValidOrders());
+        assertEquals(Integer.valueOf(0), first.getNewUsers());
+
+        DailyBusinessStats third = written.get(2);
+        assertEquals(0, BigDecimal.ZERO.compareTo(third.getTurnover()));
+        assertEquals(Integer.valueOf(1), third.getTotalOrders());
+        assertEquals(Integer.valueOf(0), third.getValidOrders());
+        assertEquals(Integer.valueOf(4), third.getNewUsers());
+
+        //没有任何数据的日期记为0
+        DailyBusinessStats empty = written.get(1);
+        assertEquals(0, BigDecimal.ZERO.compareTo(empty.getTurnover()));
+        assertEquals(Integer.valueOf(0), empty.getTotalOrders());
+        assertEquals(Integer.valueOf(0), empty.getValidOrders());
+        assertEquals(Integer.valueOf(0), empty.getNewUsers());
+
+        //每个分组查询覆盖整个区间，只查询一次
+        assertEquals(3, queries.size());
+        for (Map<?, ?> query : queries) {
+            assertEquals(LocalDateTime.of(begin, LocalTime.MIN), query.get("beginTime"));
+            assertEquals(LocalDateTime.of(end, LocalTime.MAX), query.get("endTime"));
+        }
+    }
+
+    @Test
+    public void rebuildStopsAtYesterday() {
+        reportService.rebuildBusinessStats(today.minusDays(1), today);
+
+        //今天的汇总仍在增量更新，不被覆盖
+        assertEquals(1, written.size());
+        assertEquals(today.minusDays(1), written.get(0).getDate());
+        assertEquals(LocalDateTime.of(today.minusDays(1), LocalTime.MAX), queries.get(0).get("endTime"));
+    }
+
+    @Test
+    public void rebuildOfTodayOnlyWritesNothing() {
+        reportService.rebuildBusinessStats(today, today);
+
+        assertEquals(0, written.size());
+        assertEquals(0, queries.size());
+    }
+}
@@ -0,0 +1,78 @@
+package com.sky.service.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 验证上传线程池已满时立即拒绝上传，不在请求线程中执行
+ */
+public class UploadServiceImplTest {
+
+    private final UploadServiceImpl uploadService = new UploadServiceImpl();
+
+    //与上传线程池的配置相同，只是线程数和队列容量都为1
+    private final ThreadPoolExecutor uploadExecutor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(1), new ThreadPoolExecutor.AbortPolicy());
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    public void tearDown() {
+        release.countDown();
+        uploadExecutor.shutdownNow();
+    }
+
+    @Test
+    public void rejectsWhenUploadPoolIsFull() throws Exception {
+        Field field = UploadServiceImpl.class.getDeclaredField("uploadExecutor");
+        field.setAccessible(true);
+        field.set(uploadService, uploadExecutor);
+
+        //占满线程和队列
+        uploadExecutor.execute(this::await);
+        uploadExecutor.execute(this::await);
+
+        Thread caller = Thread.currentThread();
+        MultipartFile file = (MultipartFile) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{MultipartFile.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getOriginalFilename":
+                            return "dish.jpg";
+                        case "getInputStream":
+                            assertTrue(Thread.currentThread() != caller, "不应在请求线程中读取文件");
+                            return new ByteArrayInputStream(new byte[0]);
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+
+        CompletableFuture<String> future = uploadService.upload(file);
+
+        assertTrue(future.isCompletedExceptionally());
+        ExecutionException e = assertThrows(ExecutionException.class, future::get);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+
+    private void await() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.sky.websocket;
+
+import com.alibaba.fastjson.JSON;
+import com.sky.constant.WebSocketConstant;
+import com.sky.properties.WebSocketProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import javax.websocket.RemoteEndpoint;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 使用记录发布内容的StringRedisTemplate代替redis，验证WebSocket消息在节点之间的转发
+ */
+public class WebSocketServerTest {
+
+    //其他节点的id
+    private static final String OTHER_NODE = "other-node";
+
+    private final WebSocketServer webSocketServer = new WebSocketServer();
+
+    private final RecordingRedisTemplate redisTemplate = new RecordingRedisTemplate();
+
+    //本测试建立的连接，测试结束后断开，避免影响其他测试
+    private final List<TestSession> sessions = new ArrayList<>();
+
+    private TestSession merchant;
+
+    private TestSession user;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        WebSocketProperties webSocketProperties = new WebSocketProperties();
+        webSocketProperties.setMaxPendingMessages(100);
+        webSocketProperties.setSendTimeout(1000);
+        webSocketServer.setWebSocketProperties(webSocketProperties);
+
+        Field field = WebSocketServer.class.getDeclaredField("stringRedisTemplate");
+        field.setAccessible(true);
+        field.set(webSocketServer, redisTemplate);
+
+        merchant = open("merchant-1", WebSocketConstant.GROUP_MERCHANT);
+        user = open("user-1", "user_1");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        for (TestSession session : sessions) {
+            webSocketServer.onClose(session.session, session.sid);
+        }
+    }
+
+    @Test
+    public void sendToGroupDeliversLocallyAndPublishesOnce() {
+        webSocketServer.sendToGroup(WebSocketConstant.GROUP_MERCHANT, "来单提醒");
+
+        assertEquals(Collections.singletonList("来单提醒"), merchant.received);
+        assertTrue(user.received.isEmpty());
+
+        assertEquals(1, redisTemplate.published.size());
+        RelayMessage relayMessage = JSON.parseObject(redisTemplate.published.get(0), RelayMessage.class);
+        assertEquals(WebSocketConstant.GROUP_MERCHANT, relayMessage.getGroup());
+        assertEquals("来单提醒", relayMessage.getMessage());
+        assertNotEquals(OTHER_NODE, relayMessage.getNodeId());
+    }
+
+    @Test
+    public void relayFromOtherNodeDeliversToLocalGroup() {
+        webSocketServer.onRelayMessage(JSON.toJSONString(new RelayMessage(OTHER_NODE, WebSocketConstant.GROUP_MERCHANT, "客户催单")));
+
+        assertEquals(Collections.singletonList("客户催单"), merchant.received);
+        assertTrue(user.received.isEmpty());
+        //转发过来的消息不再发布
+        assertTrue(redisTemplate.published.isEmpty());
+    }
+
+    @Test
+    public void relayWithoutGroupDeliversToAllLocalSessions() {
+        webSocketServer.onRelayMessage(JSON.toJSONString(new RelayMessage(OTHER_NODE, null, "全部")));
+
+        assertEquals(Collections.singletonList("全部"), merchant.received);
+        assertEquals(Collections.singletonList("全部"), user.received);
+    }
+
+    @Test
+    public void ownRelayIsIgnored() {
+        webSocketServer.sendToAllClient("一次");
+
+        //redis把消息也发回给发布它的节点，本节点发布前已投递，不能重复投递
+        webSocketServer.onRelayMessage(redisTemplate.published.get(0));
+
+        assertEquals(Collections.singletonList("一次"), merchant.received);
+        assertEquals(Collections.singletonList("一次"), user.received);
+    }
+
+    @Test
+    public void publishFailureKeepsLocalDelivery() {
+        redisTemplate.failing = true;
+
+        webSocketServer.sendToGroup("user_1", "订单已接单");
+
+        assertEquals(Collections.singletonList("订单已接单"), user.received);
+    }
+
+    @Test
+    public void closedSessionNoLongerReceivesRelay() {
+        webSocketServer.onClose(user.session, user.sid);
+
+        webSocketServer.onRelayMessage(JSON.toJSONString(new RelayMessage(OTHER_NODE, null, "关闭后")));
+
+        assertEquals(Collections.singletonList("关闭后"), merchant.received);
+        assertTrue(user.received.isEmpty());
+    }
+
+    private TestSession open(String sid, String... groups) {
+        TestSession testSession = new TestSession(sid, groups);
+        sessions.add(testSession);
+        webSocketServer.onOpen(testSession.session, sid);
+        return testSession;
+    }
+
+    /**
+     * 代替redis，记录发布到转发频道的消息
+     */
+    private static class RecordingRedisTemplate extends StringRedisTemplate {
+
+        private final List<String> published = new CopyOnWriteArrayList<>();
+
+        private volatile boolean failing;
+
+        @Override
+        public void convertAndSend(String channel, Object message) {
+            if (failing) {
+                throw new IllegalStateException("redis不可用");
+            }
+            assertEquals(WebSocketServer.RELAY_CHANNEL, channel);
+            published.add((String) message);
+        }
+    }
+
+    /**
+     * 同步完成发送并记录收到的消息的会话
+     */
+    private static class TestSession {
+
+        private final String sid;
+
+        private final List<String> received = new CopyOnWriteArrayList<>();
+
+        private final Session session;
+
+        private TestSession(String sid, String... groups) {
+            this.sid = sid;
+            Map<String, List<String>> params = Collections.singletonMap(WebSocketConstant.GROUP_PARAM,
+                    Collections.singletonList(String.join(",", Arrays.asList(groups))));
+            RemoteEndpoint.Async async = (RemoteEndpoint.Async) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[]{RemoteEndpoint.Async.class}, (proxy, method, args) -> {
+                        if ("sendText".equals(method.getName()) && args.length == 2) {
+                            received.add((String) args[0]);
+                            ((SendHandler) args[1]).onResult(new SendResult());
+                        }
+                        return null;
+                    });
+            this.session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class[]{Session.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "getRequestParameterMap":
+                                return params;
+                            case "getAsyncRemote":
+                                return async;
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+                            case "equals":
+                                return proxy == args[0];
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+}